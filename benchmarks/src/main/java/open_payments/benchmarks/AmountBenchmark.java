@@ -0,0 +1,70 @@
+package open_payments.benchmarks;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.api.Amount;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Summing a page of amounts, as reconciliation does: with the unsigned {@code long} arithmetic of {@link Amount},
+ * and by parsing string values into {@code BigInteger}s as was needed while amounts held their value as a string.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmountBenchmark {
+    private static final int SIZE = 1024;
+
+    private Amount[] amounts;
+    private String[] values;
+
+    @Setup
+    public void setup(){
+        this.amounts = new Amount[SIZE];
+        this.values = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.amounts[i] = new Amount(1_000L + i * 37L, "USD", 2);
+            this.values[i] = this.amounts[i].getValueString();
+        }
+    }
+
+    @Benchmark
+    public long sumValues(){
+        long sum = 0;
+        for (Amount amount : this.amounts) {
+            sum = Amount.add(sum, amount.getValue());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Amount sumAmounts(){
+        Amount sum = this.amounts[0].withValue(0);
+        for (Amount amount : this.amounts) {
+            sum = sum.plus(amount);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigInteger sumStrings(){
+        BigInteger sum = BigInteger.ZERO;
+        for (String value : this.values) {
+            sum = sum.add(new BigInteger(value));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,128 @@
+package open_payments.benchmarks;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.api.Access;
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.Grant;
+import open_payments.api.IncomingPayment;
+import open_payments.api.OutgoingPayment;
+import open_payments.api.Quote;
+import open_payments.api.QuoteAccess;
+import open_payments.api.WalletAddress;
+import open_payments.http_requests.HttpClientTransport;
+import open_payments.http_requests.TransportConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end throughput and latency of {@link AuthenticatedClient} operations against a {@link MockOpenPaymentsServer}
+ * on the loopback interface: signing, JSON, the HTTP exchange and response handling, without network variance.
+ *
+ * <p>Runs in throughput and sample-time mode; the latter reports percentiles. Add {@code -t 16} to measure the client
+ * under concurrency.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBenchmark {
+    private static final Access[] QUOTE_ACCESS = {new QuoteAccess(new String[]{"create", "read"})};
+
+    private MockOpenPaymentsServer server;
+    private Path keyFile;
+    private AuthenticatedClient client;
+    private WalletAddress sender;
+    private WalletAddress receiver;
+    private Grant incomingPaymentGrant;
+    private Grant quoteGrant;
+    private Grant outgoingPaymentGrant;
+    private IncomingPayment incomingPayment;
+    private Quote quote;
+
+    @Setup
+    public void setup() throws Exception {
+        this.server = new MockOpenPaymentsServer(Runtime.getRuntime().availableProcessors());
+        this.keyFile = Fixtures.writeSigningKey();
+        // the JDK server only speaks HTTP/1.1, skip the h2c upgrade attempt
+        HttpClientTransport transport = new HttpClientTransport(TransportConfig.builder()
+            .httpVersion(java.net.http.HttpClient.Version.HTTP_1_1).build());
+        this.client = new AuthenticatedClient(this.server.walletAddress("alice"), this.keyFile.toString(),
+            "cc8de9e6-1160-4038-ab9d-38c984db39a0", transport);
+        this.sender = this.client.getWalletAddress(this.server.walletAddress("alice"));
+        this.receiver = this.client.getWalletAddress(this.server.walletAddress("bob"));
+        this.incomingPaymentGrant = this.client.requestIncomingPaymentGrant(this.receiver);
+        this.quoteGrant = this.client.requestQuoteGrant(this.sender);
+        this.outgoingPaymentGrant = this.client.continueGrant(this.client.requestOutgoingPaymentGrant(this.sender));
+        this.incomingPayment = this.client.createIncomingPayment(this.receiver, this.incomingPaymentGrant.access_token.value, 2000);
+        this.quote = this.client.createQuote(this.sender, this.incomingPayment.id, this.quoteGrant);
+    }
+
+    @TearDown
+    public void tearDown(){
+        this.server.close();
+        Fixtures.delete(this.keyFile);
+    }
+
+    @Benchmark
+    public WalletAddress getWalletAddress(){
+        return this.client.getWalletAddress(this.server.walletAddress("bob"));
+    }
+
+    @Benchmark
+    public Grant requestGrant(){
+        return this.client.requestIncomingPaymentGrant(this.receiver);
+    }
+
+    /** A quote grant in one round trip, as {@code requestQuoteGrant} now requests it. */
+    @Benchmark
+    public Grant quoteGrantNonInteractive(){
+        return this.client.requestNonInteractiveGrant(QUOTE_ACCESS, this.sender.authServer);
+    }
+
+    /** A quote grant requested with an interaction, which then has to be continued to get its token. */
+    @Benchmark
+    public Grant quoteGrantInteractive(){
+        return this.client.continueGrant(this.client.requestGrant(QUOTE_ACCESS, this.sender.authServer));
+    }
+
+    @Benchmark
+    public IncomingPayment createIncomingPayment(){
+        return this.client.createIncomingPayment(this.receiver, this.incomingPaymentGrant.access_token.value, 2000);
+    }
+
+    @Benchmark
+    public Quote createQuote(){
+        return this.client.createQuote(this.sender, this.incomingPayment.id, this.quoteGrant);
+    }
+
+    @Benchmark
+    public OutgoingPayment createOutgoingPayment(){
+        return this.client.createOutgoingPayment(this.sender, this.quote, this.outgoingPaymentGrant);
+    }
+
+    /** The nine requests of a complete payment, one after the other. */
+    @Benchmark
+    public OutgoingPayment paymentFlow(){
+        WalletAddress from = this.client.getWalletAddress(this.server.walletAddress("alice"));
+        WalletAddress to = this.client.getWalletAddress(this.server.walletAddress("bob"));
+        Grant incoming = this.client.requestIncomingPaymentGrant(to);
+        IncomingPayment payment = this.client.createIncomingPayment(to, incoming.access_token.value, 2000);
+        Grant quoting = this.client.requestQuoteGrant(from);
+        Quote paymentQuote = this.client.createQuote(from, payment.id, quoting);
+        Grant outgoing = this.client.continueGrant(this.client.requestOutgoingPaymentGrant(from));
+        return this.client.createOutgoingPayment(from, paymentQuote, outgoing);
+    }
+}
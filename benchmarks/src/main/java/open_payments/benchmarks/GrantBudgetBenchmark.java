@@ -0,0 +1,63 @@
+package open_payments.benchmarks;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.api.Amount;
+import open_payments.api.Grant;
+import open_payments.api.Limit;
+import open_payments.cache.GrantBudget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reserving and releasing payments against one shared {@link GrantBudget}, from one thread and from several, as
+ * concurrent payments under one outgoing payment grant do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrantBudgetBenchmark {
+    private GrantBudget budget;
+
+    @Setup
+    public void setup(){
+        Grant grant = new Grant();
+        grant.access_token = grant.new AccessToken();
+        grant.access_token.value = "token";
+        Limit limit = new Limit(new Amount(Long.MAX_VALUE, "USD", 2), null, "R/2024-01-01T00:00:00Z/P1D");
+        this.budget = new GrantBudget(grant, limit);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean reserveAndRelease(){
+        return reserve();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserveAndReleaseContended(){
+        return reserve();
+    }
+
+    private boolean reserve(){
+        GrantBudget.Reservation reservation = this.budget.tryReserve(100, 0);
+        if(reservation == null){
+            return false;
+        }
+        reservation.release();
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package open_payments.benchmarks;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.http_requests.PostRequest;
+import open_payments.http_utils.HeaderUtils;
+import open_payments.http_utils.SignerRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-request work {@link HeaderUtils} does for a signed POST: the content digest, the signature base, and the
+ * complete signing of a request (digest headers, signature base and Ed25519 signature), and the cost of setting up
+ * the headers for a new client with and without a {@link SignerRegistry}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeaderUtilsBenchmark {
+    private static final String URL = "https://ilp.interledger-test.dev/incoming-payments";
+    private static final String TOKEN = "4D8FC4A1E7B5B83D1A07";
+    private static final String KEY_ID = "cc8de9e6-1160-4038-ab9d-38c984db39a0";
+
+    private Path keyFile;
+    private HeaderUtils headers;
+    private byte[] body;
+    private String bodyString;
+    private PostRequest signedRequest;
+    private ArrayList<String> covered;
+    private SignerRegistry registry;
+
+    @Setup
+    public void setup() throws Exception {
+        this.keyFile = Fixtures.writeSigningKey();
+        this.registry = new SignerRegistry();
+        this.registry.register(KEY_ID, Files.readAllBytes(this.keyFile));
+        this.headers = new HeaderUtils(this.registry.require(KEY_ID), KEY_ID);
+        this.bodyString = "{\"walletAddress\":\"https://ilp.interledger-test.dev/bob\",\"incomingAmount\":{\"assetCode\":\"USD\",\"assetScale\":2,\"value\":\"200\"}}";
+        this.body = this.bodyString.getBytes(StandardCharsets.UTF_8);
+        this.signedRequest = newRequest();
+        this.covered = new ArrayList<>(List.of("content-digest", "content-length", "content-type"));
+    }
+
+    @TearDown
+    public void tearDown(){
+        Fixtures.delete(this.keyFile);
+    }
+
+    private PostRequest newRequest() throws Exception {
+        PostRequest post = new PostRequest(URL, this.body);
+        this.headers.addDefaultHeaders(post, this.body);
+        this.headers.addAuthHeader(post, TOKEN);
+        return post;
+    }
+
+    @Benchmark
+    public String hashBytes(){
+        return HeaderUtils.hash(this.body);
+    }
+
+    @Benchmark
+    public String hashString() throws Exception {
+        return HeaderUtils.hash(this.bodyString);
+    }
+
+    @Benchmark
+    public String getSignatureBase(){
+        return this.headers.getSignatureBase(this.signedRequest, this.covered, this.bodyString, TOKEN);
+    }
+
+    /** Everything the client does to a POST before sending it: body headers, digest, signature base and signature. */
+    @Benchmark
+    public PostRequest signRequest() throws Exception {
+        PostRequest post = newRequest();
+        this.headers.signRequest(post, this.body, TOKEN);
+        return post;
+    }
+
+    /** What every client construction used to cost: reading and parsing the PEM key. */
+    @Benchmark
+    public PrivateKey parseKey() throws Exception {
+        return SignerRegistry.parse(Files.readAllBytes(this.keyFile));
+    }
+
+    /** Client construction with the key already in a registry. */
+    @Benchmark
+    public HeaderUtils headersFromRegistry(){
+        return new HeaderUtils(this.registry.require(KEY_ID), KEY_ID);
+    }
+}
@@ -0,0 +1,88 @@
+package open_payments.benchmarks;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.api.Grant;
+import open_payments.api.IncomingPayment;
+import open_payments.api.OutgoingPayment;
+import open_payments.api.Quote;
+import open_payments.http_utils.JsonCodec;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Gson round-trips of the response types, decoding a representative response and encoding the result again:
+ * through {@link JsonCodec} straight from and to bytes, and through an intermediate {@code String} as the client
+ * originally did.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    @Param({"Grant", "Quote", "IncomingPayment", "OutgoingPayment"})
+    public String type;
+
+    private final JsonCodec codec = JsonCodec.getDefault();
+    private final Gson gson = JsonCodec.getDefault().getGson();
+    private Class<?> responseType;
+    private byte[] json;
+    private Object decoded;
+
+    @Setup
+    public void setup(){
+        switch(this.type){
+            case "Grant":
+                this.responseType = Grant.class;
+                this.json = Fixtures.utf8(Fixtures.GRANT);
+                break;
+            case "Quote":
+                this.responseType = Quote.class;
+                this.json = Fixtures.utf8(Fixtures.QUOTE);
+                break;
+            case "IncomingPayment":
+                this.responseType = IncomingPayment.class;
+                this.json = Fixtures.utf8(Fixtures.INCOMING_PAYMENT);
+                break;
+            default:
+                this.responseType = OutgoingPayment.class;
+                this.json = Fixtures.utf8(Fixtures.OUTGOING_PAYMENT);
+        }
+        this.decoded = this.codec.decode(this.json, this.responseType);
+    }
+
+    @Benchmark
+    public Object decode(){
+        return this.codec.decode(this.json, this.responseType);
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return this.codec.encode(this.decoded);
+    }
+
+    @Benchmark
+    public byte[] roundTrip(){
+        return this.codec.encode(this.codec.decode(this.json, this.responseType));
+    }
+
+    @Benchmark
+    public byte[] roundTripViaString(){
+        Object value = this.gson.fromJson(new String(this.json, StandardCharsets.UTF_8), this.responseType);
+        return this.gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
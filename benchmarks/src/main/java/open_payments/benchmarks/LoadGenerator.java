@@ -0,0 +1,260 @@
+package open_payments.benchmarks;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.Grant;
+import open_payments.api.OutgoingPayment;
+import open_payments.http_requests.HttpClientTransport;
+import open_payments.http_requests.TransportConfig;
+import open_payments.metrics.InMemoryMetrics;
+import open_payments.metrics.LatencyHistogram;
+
+/**
+ * Drives complete payment flows (wallet addresses, incoming payment grant and incoming payment, quote grant and quote,
+ * outgoing payment grant, continuation and outgoing payment) through one {@link AuthenticatedClient} against a
+ * {@link MockOpenPaymentsServer}, and reports throughput and latency for a series of load steps.
+ *
+ * <p>In the open loop ({@code --mode=open}) flows are started on a fixed schedule at each of the {@code --rates},
+ * whether or not earlier flows have finished, like independent users. In the closed loop ({@code --mode=closed}) each
+ * of the {@code --concurrency} workers starts its next flow when its last one finishes, optionally paced so that all
+ * workers together start {@code --rates} flows per second.</p>
+ *
+ * <p>Latency is measured from when a flow was scheduled to start rather than from when it actually started, so time
+ * spent waiting behind a saturated client is counted instead of silently omitted (coordinated omission). The service
+ * time, from the actual start, is reported alongside. For an unpaced closed loop both are the same.</p>
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar open_payments.benchmarks.LoadGenerator \
+ *     --mode=open --rates=50,100,200,400 --duration=20 --latency=5 --jitter=5
+ * </pre>
+ */
+public class LoadGenerator {
+    private final Map<String, String> options;
+    private final AuthenticatedClient client;
+    private final String sender;
+    private final String receiver;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    LoadGenerator(Map<String, String> options, AuthenticatedClient client, MockOpenPaymentsServer server){
+        this.options = options;
+        this.client = client;
+        this.sender = server.walletAddress("alice");
+        this.receiver = server.walletAddress("bob");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if(options.containsKey("help")){
+            System.out.println("--mode=open|closed --rates=50,100 --concurrency=1,4,16 --duration=10 --warmup=5"
+                + " --latency=0 --jitter=0 --server-threads=256 --max-in-flight=10000 --metrics");
+            return;
+        }
+        Duration latency = Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "0")));
+        Duration jitter = Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter", "0")));
+        int serverThreads = Integer.parseInt(options.getOrDefault("server-threads", "256"));
+        Path keyFile = Fixtures.writeSigningKey();
+        try(MockOpenPaymentsServer server = new MockOpenPaymentsServer(serverThreads, latency, jitter)){
+            // the JDK server only speaks HTTP/1.1, skip the h2c upgrade attempt
+            HttpClientTransport transport = new HttpClientTransport(TransportConfig.builder()
+                .httpVersion(HttpClient.Version.HTTP_1_1).build());
+            AuthenticatedClient client = new AuthenticatedClient(server.walletAddress("alice"), keyFile.toString(),
+                "cc8de9e6-1160-4038-ab9d-38c984db39a0", transport);
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            if(options.containsKey("metrics")){
+                client.setMetrics(metrics);
+            }
+            new LoadGenerator(options, client, server).run();
+            if(options.containsKey("metrics")){
+                System.out.println();
+                System.out.print(metrics);
+            }
+        }finally{
+            Fixtures.delete(keyFile);
+        }
+    }
+
+    static Map<String, String> parse(String[] args){
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if(!arg.startsWith("--")){
+                throw new IllegalArgumentException("unexpected argument " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static List<String> list(String value){
+        List<String> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if(!item.isBlank()){
+                values.add(item.strip());
+            }
+        }
+        return values;
+    }
+
+    void run() throws InterruptedException {
+        boolean open = "open".equals(this.options.getOrDefault("mode", "closed"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(this.options.getOrDefault("duration", "10")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(this.options.getOrDefault("warmup", "5")));
+        List<String> rates = list(this.options.getOrDefault("rates", open ? "50,100,200" : ""));
+        List<String> concurrencies = list(this.options.getOrDefault("concurrency", "1,4,16"));
+
+        System.out.printf("%-6s %6s %9s %10s %9s %7s %9s %9s %9s %9s %9s %11s %11s%n", "mode", "conc", "rate/s",
+            "achieved/s", "flows", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p50 ms", "svc p99 ms");
+        if(open){
+            runOpen(Double.parseDouble(rates.get(0)), warmup);
+            for (String rate : rates) {
+                print("open", 0, Double.parseDouble(rate), runOpen(Double.parseDouble(rate), duration));
+            }
+        }else{
+            double rate = rates.isEmpty() ? 0 : Double.parseDouble(rates.get(0));
+            runClosed(Integer.parseInt(concurrencies.get(0)), rate, warmup);
+            for (String concurrency : concurrencies) {
+                print("closed", Integer.parseInt(concurrency), rate, runClosed(Integer.parseInt(concurrency), rate, duration));
+            }
+        }
+    }
+
+    /**
+     * Starts flows at {@code rate} per second for {@code duration}, then waits for the flows still in flight.
+     */
+    StepResult runOpen(double rate, Duration duration) throws InterruptedException {
+        int maxInFlight = Integer.parseInt(this.options.getOrDefault("max-in-flight", "10000"));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        StepResult result = new StepResult();
+        long interval = (long) (1_000_000_000 / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if(intended - end >= 0){
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if(wait > 0){
+                LockSupport.parkNanos(wait);
+            }
+            // blocking here delays later starts, but their latency is still measured from the schedule
+            inFlight.acquire();
+            long started = System.nanoTime();
+            flow().whenComplete((payment, error) -> {
+                result.record(intended, started, error);
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(maxInFlight);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Runs {@code concurrency} workers for {@code duration}, each starting its next flow as soon as its last one
+     * finishes, or on a schedule of {@code rate / concurrency} flows per second if {@code rate} is positive.
+     */
+    StepResult runClosed(int concurrency, double rate, Duration duration) throws InterruptedException {
+        StepResult result = new StepResult();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long interval = rate > 0 ? (long) (1_000_000_000 * concurrency / rate) : 0;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (int worker = 0; worker < concurrency; worker++) {
+            // spread paced workers over one interval so they do not all start at once
+            long first = start + (interval * worker) / concurrency;
+            schedule(() -> runWorker(first, interval, end, result, done), first);
+        }
+        done.await();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void runWorker(long intended, long interval, long end, StepResult result, CountDownLatch done){
+        long started = System.nanoTime();
+        long scheduled = interval > 0 ? intended : started;
+        flow().whenComplete((payment, error) -> {
+            result.record(scheduled, started, error);
+            long next = interval > 0 ? scheduled + interval : System.nanoTime();
+            if(next - end >= 0){
+                done.countDown();
+            }else{
+                schedule(() -> runWorker(next, interval, end, result, done), next);
+            }
+        });
+    }
+
+    private void schedule(Runnable task, long atNanos){
+        long delay = atNanos - System.nanoTime();
+        if(delay > 0){
+            this.scheduler.schedule(task, delay, TimeUnit.NANOSECONDS);
+        }else{
+            this.scheduler.execute(task);
+        }
+    }
+
+    /**
+     * One payment, request by request as in the quick start, without blocking a thread.
+     */
+    CompletableFuture<OutgoingPayment> flow(){
+        return this.client.getWalletAddressAsync(this.sender).thenCombine(this.client.getWalletAddressAsync(this.receiver),
+            (from, to) -> this.client.requestIncomingPaymentGrantAsync(to)
+                .thenCompose(grant -> this.client.createIncomingPaymentAsync(to, grant.access_token.value, 2000))
+                .thenCompose(incoming -> this.client.requestQuoteGrantAsync(from)
+                    .thenCompose(grant -> this.client.createQuoteAsync(from, incoming.id, grant)))
+                .thenCompose(quote -> this.client.requestOutgoingPaymentGrantAsync(from)
+                    .thenCompose(this.client::continueGrantAsync)
+                    .thenCompose((Grant grant) -> this.client.createOutgoingPaymentAsync(from, quote, grant))))
+            .thenCompose(payment -> payment);
+    }
+
+    private static void print(String mode, int concurrency, double rate, StepResult result){
+        double seconds = result.elapsedNanos / 1e9;
+        LatencyHistogram latency = result.latency;
+        System.out.printf("%-6s %6s %9s %10.1f %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f %11.2f%n", mode,
+            concurrency == 0 ? "-" : Integer.toString(concurrency), rate > 0 ? String.format("%.0f", rate) : "max",
+            latency.getCount() / seconds, latency.getCount(), result.errors.get(),
+            millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+            millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)), millis(latency.getMax()),
+            millis(result.serviceTime.getValueAtPercentile(50)), millis(result.serviceTime.getValueAtPercentile(99)));
+    }
+
+    private static double millis(long nanos){
+        return nanos / 1e6;
+    }
+
+    static class StepResult {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        long elapsedNanos;
+
+        void record(long intended, long started, Throwable error){
+            long now = System.nanoTime();
+            if(error != null){
+                this.errors.incrementAndGet();
+                return;
+            }
+            this.latency.record(now - intended);
+            this.serviceTime.record(now - started);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package open_payments.benchmarks;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process stand-in for a wallet address, auth and resource server, built on the JDK {@link HttpServer}, so
+ * end-to-end benchmarks run offline. Responses are canned; signatures are not verified.
+ *
+ * <p>Wallet addresses are served from {@code /<name>}, the auth server from {@code /auth} and the resource server
+ * from {@code /rs}. Grant requests that offer an interaction get a pending grant to continue, all others an access
+ * token straight away.</p>
+ */
+public class MockOpenPaymentsServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String baseUrl;
+    private final byte[] grant;
+    private final byte[] pendingGrant;
+    private final byte[] continuedGrant;
+    private final byte[] incomingPayment;
+    private final byte[] quote;
+    private final byte[] outgoingPayment;
+    private final long latencyNanos;
+    private final long jitterNanos;
+
+    /**
+     * @param threads The number of threads handling requests.
+     */
+    public MockOpenPaymentsServer(int threads) throws IOException {
+        this(threads, Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * Creates a server that delays every response, to stand in for a remote server. Each delayed request holds a
+     * handler thread, so {@code threads} bounds the number of requests the server works on at once.
+     *
+     * @param threads The number of threads handling requests.
+     * @param latency The minimum time taken to answer a request.
+     * @param jitter  The upper bound of a uniformly distributed random delay added to {@code latency}.
+     */
+    public MockOpenPaymentsServer(int threads, Duration latency, Duration jitter) throws IOException {
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        // without this each small response waits for a delayed ACK, which would dominate the measured latency
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.baseUrl = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.grant = Fixtures.utf8("{\"access_token\":{\"value\":\"4D8FC4A1E7B5B83D1A07\",\"manage\":\"" + this.baseUrl
+            + "/auth/token/1\",\"expires_in\":600,\"access\":[]},\"continue\":{\"access_token\":{\"value\":\"33OMUKMKSKU80UPRY5NM\"},"
+            + "\"uri\":\"" + this.baseUrl + "/auth/continue/1\",\"wait\":0}}");
+        this.pendingGrant = Fixtures.utf8("{\"continue\":{\"access_token\":{\"value\":\"33OMUKMKSKU80UPRY5NM\"},"
+            + "\"uri\":\"" + this.baseUrl + "/auth/continue/1\",\"wait\":0},\"interact\":{\"redirect\":\"" + this.baseUrl
+            + "/interact\",\"finish\":\"4105340a-05eb-4290-8739-f9e2b463bfa7\"}}");
+        this.continuedGrant = Fixtures.utf8("{\"access_token\":{\"value\":\"OS9M2PMHKUR64TB8N6BW\",\"manage\":\"" + this.baseUrl
+            + "/auth/token/2\",\"expires_in\":600,\"access\":[]}}");
+        this.incomingPayment = Fixtures.utf8(Fixtures.INCOMING_PAYMENT);
+        this.quote = Fixtures.utf8(Fixtures.QUOTE);
+        this.outgoingPayment = Fixtures.utf8(Fixtures.OUTGOING_PAYMENT);
+        this.server.createContext("/", this::handle);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mock-open-payments");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    public String getBaseUrl(){
+        return this.baseUrl;
+    }
+
+    /**
+     * @return The URL of a wallet address served by this server.
+     */
+    public String walletAddress(String name){
+        return this.baseUrl + "/" + name;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] request;
+        try(InputStream in = exchange.getRequestBody()){
+            request = in.readAllBytes();
+        }
+        delay();
+        String path = exchange.getRequestURI().getPath();
+        int status = 201;
+        byte[] body;
+        if(path.startsWith("/auth/continue")){
+            status = 200;
+            body = this.continuedGrant;
+        }else if(path.startsWith("/auth/token")){
+            status = 200;
+            body = this.continuedGrant;
+        }else if(path.startsWith("/auth")){
+            status = 200;
+            // like a real auth server, only issue a token straight away if no interaction was asked for
+            body = new String(request, StandardCharsets.UTF_8).contains("\"interact\"") ? this.pendingGrant : this.grant;
+        }else if(path.equals("/rs/incoming-payments")){
+            body = this.incomingPayment;
+        }else if(path.equals("/rs/quotes")){
+            body = this.quote;
+        }else if(path.equals("/rs/outgoing-payments")){
+            body = this.outgoingPayment;
+        }else{
+            status = 200;
+            body = walletAddressJson(path.substring(1));
+        }
+        exchange.getResponseHeaders().add("content-type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(body);
+        }
+    }
+
+    private void delay(){
+        long delay = this.latencyNanos + (this.jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(this.jitterNanos) : 0);
+        if(delay > 0){
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    private byte[] walletAddressJson(String name){
+        return ("{\"id\":\"" + this.baseUrl + "/" + name + "\",\"publicName\":\"" + name + "\",\"assetCode\":\"USD\","
+            + "\"assetScale\":2,\"authServer\":\"" + this.baseUrl + "/auth\",\"resourceServer\":\"" + this.baseUrl + "/rs\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close(){
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
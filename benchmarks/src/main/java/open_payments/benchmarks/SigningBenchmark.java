@@ -0,0 +1,85 @@
+package open_payments.benchmarks;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+import open_payments.http_utils.SigningEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Signatures (and digests) per second when a JCA instance is looked up and initialised for every request, as
+ * {@code HeaderUtils} used to, versus the pooled instances of {@link SigningEngine}.
+ *
+ * <p>Run with {@code -prof gc} to also report the allocation rate per operation ({@code gc.alloc.rate.norm}).</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningBenchmark {
+    private PrivateKey key;
+    private SigningEngine engine;
+    private byte[] signatureBase;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        this.key = KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPrivate();
+        this.engine = new SigningEngine(this.key);
+        this.signatureBase = ("\"@method\": POST\n"
+            + "\"@target-uri\": https://ilp.interledger-test.dev/incoming-payments\n"
+            + "\"authorization\": GNAP 4D8FC4A1E7B5B83D1A07\n"
+            + "\"content-digest\": sha-512=:vvGk3bp6WQc1yyoVvXOxmYGaoNdESTqVaE6sABDUB0KJoS0vbvngxA2pyKTzFmGLMX9YcLyUhL1vX+hyZvzy4A==:\n"
+            + "\"content-length\": 112\n"
+            + "\"content-type\": application/json\n"
+            + "\"@signature-params\": (\"@method\" \"@target-uri\" \"authorization\" \"content-digest\" \"content-length\" \"content-type\");keyid=\"cc8de9e6-1160-4038-ab9d-38c984db39a0\";created=1700000000")
+            .getBytes(StandardCharsets.UTF_8);
+        this.body = "{\"walletAddress\":\"https://ilp.interledger-test.dev/spca\",\"incomingAmount\":{\"assetCode\":\"USD\",\"assetScale\":2,\"value\":\"200\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] signWithNewInstance() throws Exception {
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initSign(this.key);
+        signature.update(this.signatureBase);
+        return signature.sign();
+    }
+
+    @Benchmark
+    public byte[] signWithEngine() throws Exception {
+        return this.engine.sign(this.signatureBase);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] signWithEngineContended() throws Exception {
+        return this.engine.sign(this.signatureBase);
+    }
+
+    @Benchmark
+    public byte[] digestWithNewInstance() throws Exception {
+        return MessageDigest.getInstance("SHA-512").digest(this.body);
+    }
+
+    @Benchmark
+    public byte[] digestWithEngine(){
+        return SigningEngine.sha512(this.body);
+    }
+}
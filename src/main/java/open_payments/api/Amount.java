@@ -1,40 +1,288 @@
 package open_payments.api;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * An amount of an asset. Instances are immutable.
+ *
+ * <p>The value is an unsigned 64-bit integer, held in a {@code long} whose bits are read as unsigned: values above
+ * {@link Long#MAX_VALUE} appear negative through {@link #getValue()}, so compare and format them with
+ * {@link #compareTo(Amount)}, {@link Long#compareUnsigned} and {@link #getValueString()}. Asset codes are pooled, so
+ * millions of amounts in the same currency share one string. The arithmetic methods allocate nothing beyond their
+ * result, and the static {@link #add(long, long)} and {@link #subtract(long, long)} allocate nothing at all, for
+ * summing large numbers of amounts.</p>
+ *
+ * <p>In JSON the value is written as a string and the scale as a number, as the Open Payments API specifies; either
+ * is read from a string or a number.</p>
+ */
+@JsonAdapter(Amount.Adapter.class)
+public final class Amount implements Comparable<Amount> {
+    private static final BigInteger UNSIGNED_MASK = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    private static final int MAX_ASSET_CODES = 1024;
+    private static final ConcurrentHashMap<String, String> ASSET_CODES = new ConcurrentHashMap<>();
 
-public class Amount {
     /**
-     * The value is an unsigned 64-bit integer amount, represented as a string.
+     * The value is an unsigned 64-bit integer amount.
      */
-    String value;
+    private final long value;
 
     /**
      * The assetCode is a code that indicates the underlying asset. This SHOULD be an ISO4217 currency code.
      */
-    String assetCode;
+    private final String assetCode;
 
     /**
-     * The scale of amounts denoted in the corresponding asset code. <255
+     * The scale of amounts denoted in the corresponding asset code, 0 to 255 read as unsigned.
      */
-    String assetScale;
-    
+    private final byte assetScale;
+
     /**
      * Constructs an {@code Amount} object with the specified value, asset code, and asset scale.
-     * 
-     * @param value      The unsigned 64-bit integer amount, provided as an {@code int}. 
-     *                   It will be converted to a string representation internally.
+     *
+     * @param value      The amount, which must not be negative.
      * @param assetCode  The code indicating the underlying asset. This should follow the ISO4217 currency code standard.
-     * @param assetScale The scale of amounts for the corresponding asset code, represented as a string. 
+     * @param assetScale The scale of amounts for the corresponding asset code, represented as a string.
      *                   This value must be less than 255.
      */
     public Amount(int value, String assetCode, String assetScale){
-        this.value = Integer.toString(value);
+        this(checkNotNegative(value), assetCode, Integer.parseInt(assetScale));
+    }
+
+    /**
+     * @param value      The amount as an unsigned 64-bit integer: negative {@code long}s stand for values above
+     *                   {@link Long#MAX_VALUE}.
+     * @param assetCode  The code indicating the underlying asset. This should follow the ISO4217 currency code standard.
+     * @param assetScale The scale of amounts for the corresponding asset code, from 0 to 255.
+     */
+    public Amount(long value, String assetCode, int assetScale){
+        if(assetScale < 0 || assetScale > 255){
+            throw new IllegalArgumentException("assetScale must be between 0 and 255: " + assetScale);
+        }
+        this.value = value;
+        this.assetCode = intern(assetCode);
+        this.assetScale = (byte) assetScale;
+    }
+
+    private Amount(String assetCode, byte assetScale, long value){
+        this.value = value;
         this.assetCode = assetCode;
         this.assetScale = assetScale;
     }
 
+    private static String intern(String assetCode){
+        if(assetCode == null){
+            return null;
+        }
+        String interned = ASSET_CODES.get(assetCode);
+        if(interned != null){
+            return interned;
+        }
+        // asset codes come from servers, so stop pooling rather than grow without bound
+        if(ASSET_CODES.size() >= MAX_ASSET_CODES){
+            return assetCode;
+        }
+        interned = ASSET_CODES.putIfAbsent(assetCode, assetCode);
+        return interned == null ? assetCode : interned;
+    }
+
+    /**
+     * @param value The amount as a decimal string of an unsigned 64-bit integer, as found in Open Payments JSON.
+     * @throws NumberFormatException If {@code value} is not an unsigned 64-bit integer.
+     */
+    public static Amount parse(String value, String assetCode, int assetScale){
+        return new Amount(Long.parseUnsignedLong(value), assetCode, assetScale);
+    }
+
+    private static long checkNotNegative(int value){
+        if(value < 0){
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * @return The value's 64 bits, to be read as an unsigned integer.
+     */
+    public long getValue(){
+        return this.value;
+    }
+
+    /**
+     * @return The value as an unsigned decimal string.
+     */
+    public String getValueString(){
+        return Long.toUnsignedString(this.value);
+    }
+
+    public BigInteger toBigInteger(){
+        return BigInteger.valueOf(this.value).and(UNSIGNED_MASK);
+    }
+
+    public String getAssetCode(){
+        return this.assetCode;
+    }
+
+    public int getAssetScale(){
+        return this.assetScale & 0xFF;
+    }
+
+    /**
+     * @return Whether {@code other} is in the same asset code and scale, so that the two can be added or compared.
+     */
+    public boolean isSameAsset(Amount other){
+        // asset codes are usually interned, making this an identity check
+        return this.assetScale == other.assetScale && Objects.equals(this.assetCode, other.assetCode);
+    }
+
+    public boolean isZero(){
+        return this.value == 0;
+    }
+
+    /**
+     * @return The sum of this amount and {@code other}.
+     * @throws IllegalArgumentException If the amounts are in different assets.
+     * @throws ArithmeticException If the sum does not fit in 64 unsigned bits.
+     */
+    public Amount plus(Amount other){
+        checkSameAsset(other);
+        return withValue(add(this.value, other.value));
+    }
+
+    /**
+     * @return This amount less {@code other}.
+     * @throws IllegalArgumentException If the amounts are in different assets.
+     * @throws ArithmeticException If {@code other} is larger than this amount.
+     */
+    public Amount minus(Amount other){
+        checkSameAsset(other);
+        return withValue(subtract(this.value, other.value));
+    }
+
+    /**
+     * @return An amount in the same asset with the given unsigned value.
+     */
+    public Amount withValue(long value){
+        return value == this.value ? this : new Amount(this.assetCode, this.assetScale, value);
+    }
+
+    /**
+     * Adds two unsigned 64-bit values.
+     *
+     * @throws ArithmeticException If the sum does not fit in 64 unsigned bits.
+     */
+    public static long add(long a, long b){
+        long sum = a + b;
+        if(Long.compareUnsigned(sum, a) < 0){
+            throw new ArithmeticException("unsigned long overflow");
+        }
+        return sum;
+    }
+
+    /**
+     * Subtracts two unsigned 64-bit values.
+     *
+     * @throws ArithmeticException If {@code b} is larger than {@code a}.
+     */
+    public static long subtract(long a, long b){
+        if(Long.compareUnsigned(a, b) < 0){
+            throw new ArithmeticException("unsigned long underflow");
+        }
+        return a - b;
+    }
+
+    /**
+     * Compares the values of two amounts in the same asset.
+     *
+     * @throws IllegalArgumentException If the amounts are in different assets.
+     */
+    @Override
+    public int compareTo(Amount other){
+        checkSameAsset(other);
+        return Long.compareUnsigned(this.value, other.value);
+    }
+
+    private void checkSameAsset(Amount other){
+        if(!isSameAsset(other)){
+            throw new IllegalArgumentException("Cannot combine " + this.assetCode + "/" + getAssetScale()
+                + " with " + other.assetCode + "/" + other.getAssetScale());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof Amount)){
+            return false;
+        }
+        Amount other = (Amount) o;
+        return this.value == other.value && isSameAsset(other);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * (31 * Long.hashCode(this.value) + (this.assetCode == null ? 0 : this.assetCode.hashCode())) + this.assetScale;
+    }
+
     public String toString(){
-        Gson gson = new GsonBuilder().create();
-        return gson.toJson(this);
+        return "{\"value\":\"" + getValueString() + "\",\"assetCode\":\"" + this.assetCode + "\",\"assetScale\":" + getAssetScale() + "}";
+    }
+
+    /**
+     * Reads and writes amounts without reflection. The value is written as a string and the scale as a number.
+     */
+    static class Adapter extends TypeAdapter<Amount> {
+        @Override
+        public void write(JsonWriter out, Amount amount) throws IOException {
+            if(amount == null){
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("value").value(amount.getValueString());
+            out.name("assetCode").value(amount.assetCode);
+            out.name("assetScale").value(amount.getAssetScale());
+            out.endObject();
+        }
+
+        @Override
+        public Amount read(JsonReader in) throws IOException {
+            long value = 0;
+            String assetCode = null;
+            int assetScale = 0;
+            in.beginObject();
+            while(in.hasNext()){
+                String name = in.nextName();
+                if(in.peek() == JsonToken.NULL){
+                    in.nextNull();
+                    continue;
+                }
+                switch(name){
+                    case "value":
+                        // nextString also reads numbers, as their literal text
+                        value = Long.parseUnsignedLong(in.nextString());
+                        break;
+                    case "assetCode":
+                        assetCode = in.nextString();
+                        break;
+                    case "assetScale":
+                        assetScale = Integer.parseInt(in.nextString());
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Amount(value, assetCode, assetScale);
+        }
     }
 }
@@ -1,15 +1,44 @@
 package open_payments.api;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import open_payments.cache.BudgetLedger;
+import open_payments.cache.GrantBudget;
+import open_payments.cache.IdempotencyLedger;
+import open_payments.cache.TokenStore;
+import open_payments.cache.WalletAddressCache;
 import open_payments.http_requests.GetRequest;
+import open_payments.http_requests.HttpClientTransport;
+import open_payments.http_requests.HttpTransport;
+import open_payments.http_requests.OpenPaymentsException;
+import open_payments.http_requests.Operation;
 import open_payments.http_requests.PostRequest;
+import open_payments.http_requests.Request;
 import open_payments.http_utils.HeaderUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import open_payments.http_utils.JsonCodec;
+import open_payments.http_utils.SignerRegistry;
+import open_payments.http_utils.SigningEngine;
+import open_payments.metrics.ClientMetrics;
+
+import com.google.gson.reflect.TypeToken;
 
 public class AuthenticatedClient {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final Type INCOMING_PAYMENT_PAGE = TypeToken.getParameterized(Page.class, IncomingPayment.class).getType();
+    private static final Type OUTGOING_PAYMENT_PAGE = TypeToken.getParameterized(Page.class, OutgoingPayment.class).getType();
+
     HeaderUtils headerFactory;
-    private Gson gson = new GsonBuilder().create();
+    private HttpTransport transport;
+    private JsonCodec codec = JsonCodec.getDefault();
+    private volatile WalletAddressCache walletAddressCache;
+    private volatile TokenStore tokenStore;
+    private volatile IdempotencyLedger idempotencyLedger;
+    private volatile BudgetLedger budgetLedger;
+    private volatile ClientMetrics metrics = ClientMetrics.NOOP;
     private String walletAddress;
 
     /**
@@ -18,10 +47,144 @@ public class AuthenticatedClient {
      * @param url        The wallet address URL to associate with this client.
      * @param pk_filename The filename of the private key used for signing requests.
      * @param keyId      The key ID associated with the private key.
+     * @throws IllegalArgumentException If the private key file cannot be read or does not hold an Ed25519 key.
      */
     public AuthenticatedClient(String url, String pk_filename, String keyId){
+        this(url, pk_filename, keyId, HttpClientTransport.getDefault());
+    }
+
+    /**
+     * Constructs an {@code AuthenticatedClient} instance that sends its requests through the given transport.
+     *
+     * <p>Clients created with the three argument constructor share {@link HttpClientTransport#getDefault()}; pass a
+     * dedicated {@link HttpClientTransport} to tune timeouts, HTTP version or connection pooling.</p>
+     *
+     * @param url        The wallet address URL to associate with this client.
+     * @param pk_filename The filename of the private key used for signing requests.
+     * @param keyId      The key ID associated with the private key.
+     * @param transport  The transport used to send requests to the auth and resource servers.
+     * @throws IllegalArgumentException If the private key file cannot be read or does not hold an Ed25519 key.
+     */
+    public AuthenticatedClient(String url, String pk_filename, String keyId, HttpTransport transport){
         this.headerFactory = new HeaderUtils(pk_filename, keyId);
         this.walletAddress = url;
+        this.transport = transport;
+    }
+
+    /**
+     * Constructs an {@code AuthenticatedClient} that signs with an already loaded key, typically one shared through a
+     * {@link SignerRegistry}. No key file is read, so clients can be created per request or per tenant:
+     *
+     * <pre>
+     * {@code
+     * SignerRegistry keys = new SignerRegistry();
+     * keys.register(keyId, pemBytes);
+     * AuthenticatedClient client = new AuthenticatedClient(url, keys.require(keyId), keyId, transport);
+     * }
+     * </pre>
+     *
+     * @param url       The wallet address URL to associate with this client.
+     * @param signer    The signer for the client's private key.
+     * @param keyId     The key ID associated with the private key.
+     * @param transport The transport used to send requests to the auth and resource servers.
+     */
+    public AuthenticatedClient(String url, SigningEngine signer, String keyId, HttpTransport transport){
+        this.headerFactory = new HeaderUtils(signer, keyId);
+        this.walletAddress = url;
+        this.transport = transport;
+    }
+
+    /**
+     * @return The transport this client sends its requests through.
+     */
+    public HttpTransport getTransport(){
+        return this.transport;
+    }
+
+    /**
+     * Resolves wallet addresses through {@code cache}, which may be shared between clients.
+     *
+     * @param cache The cache to use, or {@code null} to fetch every wallet address from its server.
+     */
+    public void setWalletAddressCache(WalletAddressCache cache){
+        this.walletAddressCache = cache;
+    }
+
+    public WalletAddressCache getWalletAddressCache(){
+        return this.walletAddressCache;
+    }
+
+    /**
+     * Reuses incoming payment and quote grants from {@code store} while their tokens are valid, rather than requesting
+     * a new grant for every incoming payment or quote. The store rotates the tokens before they expire.
+     *
+     * @param store The store to use, or {@code null} to request a new grant every time.
+     */
+    public void setTokenStore(TokenStore store){
+        this.tokenStore = store;
+    }
+
+    public TokenStore getTokenStore(){
+        return this.tokenStore;
+    }
+
+    /**
+     * Records incoming and outgoing payment creation in {@code ledger}, so that a call repeated with the same
+     * idempotency key does not create a second payment. Repeating a call that already succeeded returns the recorded
+     * payment without contacting the server, see {@link IdempotencyLedger} for calls with an unknown outcome.
+     *
+     * <p>Calls are identified only by the key the caller passes, e.g. to
+     * {@link #createOutgoingPayment(WalletAddress, Quote, Grant, String)}, never by their content: calls without a
+     * key are always sent, each with a fresh {@code Idempotency-Key}, however similar their bodies.</p>
+     *
+     * @param ledger The ledger to use, which may be shared between clients, or {@code null} to send every request.
+     */
+    public void setIdempotencyLedger(IdempotencyLedger ledger){
+        this.idempotencyLedger = ledger;
+    }
+
+    public IdempotencyLedger getIdempotencyLedger(){
+        return this.idempotencyLedger;
+    }
+
+    /**
+     * Forgets the call this client recorded under {@code idempotencyKey}, so that the next call with the key is sent
+     * again, e.g. once a call with an unknown outcome turned out not to have created the payment.
+     */
+    public void invalidateIdempotencyKey(String idempotencyKey){
+        IdempotencyLedger ledger = this.idempotencyLedger;
+        if(ledger != null){
+            ledger.invalidate(clientId(), idempotencyKey);
+        }
+    }
+
+    /**
+     * Shares outgoing payment grants with limits between payments through {@code ledger}, see
+     * {@link #reserveOutgoingPaymentBudgetAsync(WalletAddress, Limit, long, long, Function)}.
+     *
+     * @param ledger The ledger to use, which may be shared between clients, or {@code null} to request a grant for
+     *               every payment.
+     */
+    public void setBudgetLedger(BudgetLedger ledger){
+        this.budgetLedger = ledger;
+    }
+
+    public BudgetLedger getBudgetLedger(){
+        return this.budgetLedger;
+    }
+
+    /**
+     * Records the latency, payload sizes, signing and JSON encoding time, connection reuse and retries of every
+     * request this client sends in {@code metrics}, per operation.
+     *
+     * @param metrics The metrics to record in, which may be shared between clients, or {@code null} to record nothing.
+     */
+    public void setMetrics(ClientMetrics metrics){
+        this.metrics = metrics == null ? ClientMetrics.NOOP : metrics;
+    }
+
+    public ClientMetrics getMetrics(){
+        return this.metrics;
     }
 
     /**
@@ -29,21 +192,20 @@ public class AuthenticatedClient {
      * 
      * @param url the endpoint URL of the Wallet Address Server to fetch the wallet address.
      *            This should point to a valid resource as defined in the Open Payments API.
-     * @return a {@code WalletAddress} object containing the wallet address details if the request is successful,
-     *         or {@code null} if an exception occurs during the request or response processing.
+     * @return a {@code WalletAddress} object containing the wallet address details.
      * 
+     * @throws OpenPaymentsException if the request fails or the server responds with an error, e.g. 404 for an unknown wallet address.
      * @throws IllegalArgumentException if the URL is null or invalid.
      * 
      * Example usage:
      * <pre>
      * {@code
      * String url = "https://wallet-address-server.example.com/api/v1/wallet-address";
-     * WalletAddress walletAddress = getWalletAddress(url);
-     * 
-     * if (walletAddress != null) {
+     * try {
+     *     WalletAddress walletAddress = getWalletAddress(url);
      *     System.out.println("Wallet Address ID: " + walletAddress.getId());
-     * } else {
-     *     System.out.println("Failed to retrieve the wallet address.");
+     * } catch (OpenPaymentsException e) {
+     *     System.out.println("Failed to retrieve the wallet address: " + e.getStatusCode());
      * }
      * }
      * </pre>
@@ -52,22 +214,38 @@ public class AuthenticatedClient {
      * - The method uses the {@code headerFactory} to generate unsigned HTTP headers for the request.
      * - The JSON response is deserialized into a {@code WalletAddress} object using the Gson library.
      * - Ensure that the provided {@code url} matches the Wallet Address Server API structure.
-     * - Handle potential null values in the calling code to avoid {@code NullPointerException}.
+     * - Failures are reported as an {@code OpenPaymentsException} carrying the status code and the parsed error body.
      * 
      * @see <a href="https://openpayments.dev/apis/wallet-address-server/operations/get-wallet-address/">Wallet Address Server API - Get Wallet Address</a>
      */
 
     public WalletAddress getWalletAddress(String url){
+        return join(getWalletAddressAsync(url));
+    }
+
+    /**
+     * Asynchronous variant of {@link #getWalletAddress(String)}.
+     *
+     * @param url the endpoint URL of the Wallet Address Server to fetch the wallet address.
+     * @return A future completed with the {@code WalletAddress}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<WalletAddress> getWalletAddressAsync(String url){
+        WalletAddressCache cache = this.walletAddressCache;
+        if(cache != null){
+            return cache.get(url, this::fetchWalletAddress);
+        }
         HashMap<String, String> headers = headerFactory.getUnsignedHeaders();
         GetRequest req = new GetRequest(url, headers);
-        try{
-            req.send();
-            String rawResponse = req.getResponse();
-            return gson.fromJson(rawResponse, WalletAddress.class);
-        }catch(Exception e){
-            System.out.println(e);
-            return null;
-        }
+        tag(req, Operation.GET_WALLET_ADDRESS);
+        return req.sendAsync(this.transport, this.codec, WalletAddress.class);
+    }
+
+    private CompletableFuture<WalletAddressCache.Loaded> fetchWalletAddress(String url){
+        HashMap<String, String> headers = headerFactory.getUnsignedHeaders();
+        GetRequest req = new GetRequest(url, headers);
+        tag(req, Operation.GET_WALLET_ADDRESS);
+        return req.execute(this.transport).thenApply(response -> new WalletAddressCache.Loaded(
+            codec.decode(response.getBody(), WalletAddress.class), response.getHeader("cache-control")));
     }
 
 /**
@@ -77,8 +255,8 @@ public class AuthenticatedClient {
  * @param {String} authServerUrl - The URL of the authorization server's endpoint to send the grant request.
  * @param {String} redirectUrl - The URL to which the user will be redirected after completing the interaction.
  * @param {String} nonce - A unique value to associate the interaction with the grant request for security purposes.
- * @return {Grant} A {@code Grant} object containing the grant details if the request is successful, 
- *                 or {@code null} if an error occurs during the process.
+ * @return {Grant} A {@code Grant} object containing the grant details.
+ * @throws OpenPaymentsException If the request fails or the server responds with an error.
  *
  * Example usage:
  * <pre>
@@ -88,12 +266,11 @@ public class AuthenticatedClient {
  * String redirectUrl = "https://client.example.com/callback";
  * String nonce = "unique-nonce-value";
  *
- * Grant grant = requestGrant(accesses, authServerUrl, redirectUrl, nonce);
- *
- * if (grant != null) {
+ * try {
+ *     Grant grant = requestGrant(accesses, authServerUrl, redirectUrl, nonce);
  *     System.out.println("Grant received: " + grant.getAccessToken());
- * } else {
- *     System.out.println("Failed to request grant.");
+ * } catch (OpenPaymentsException e) {
+ *     System.out.println("Failed to request grant: " + e.getErrorCode());
  * }
  * }
  * </pre>
@@ -101,29 +278,25 @@ public class AuthenticatedClient {
  * Notes:
  * - The method constructs a `GrantRequest` object with the specified accesses, wallet address, and interaction details.
  * - The JSON payload is signed and sent as a POST request to the authorization server.
- * - The method replaces the reserved Java keyword `continue` with `continuation` in the response to allow parsing.
+ * - The `continue` field of the response is mapped to `Grant.continuation`, since `continue` is reserved in Java.
  * - Ensure the `authServerUrl` is valid and points to a compliant Open Payments authorization server.
- * - Handle potential null values in the calling code to avoid {@code NullPointerException}.
+ * - Failures are reported as an {@code OpenPaymentsException} carrying the status code and the parsed error body.
  *
  * @see <a href="https://openpayments.dev/apis/auth-server/operations/post-request/">Authorization Server API - POST /request</a>
  */
     public Grant requestGrant(Access[] accesses, String authServerUrl, String redirectUrl, String nonce){
-        try{
-            String[] start = {"redirect"};
-            Interaction interaction = new Interaction(start, new Finish(redirectUrl, nonce));
-            GrantRequest grantRequest = new GrantRequest(accesses, this.walletAddress, interaction);
-            String body = gson.toJson(grantRequest).strip();
-            PostRequest post = new PostRequest(authServerUrl+'/', body);
-            headerFactory.addDefaultHeaders(post.getConnection(), body); 
-            headerFactory.signRequest(post.getConnection(), body, null);
-            post.send();
-            String response = post.getResponse();
-            // since continue is reserved in java
-            response = response.replace("continue", "continuation");
-            return (Grant)gson.fromJson(response, Grant.class);
-        }catch(Exception e){
-            return null;
-        }
+        return join(requestGrantAsync(accesses, authServerUrl, redirectUrl, nonce));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestGrant(Access[], String, String, String)}.
+     *
+     * @return A future completed with the {@code Grant}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Grant> requestGrantAsync(Access[] accesses, String authServerUrl, String redirectUrl, String nonce){
+        String[] start = {"redirect"};
+        Interaction interaction = new Interaction(start, new Finish(redirectUrl, nonce));
+        return sendGrantRequest(new GrantRequest(accesses, this.walletAddress, interaction), authServerUrl);
     }
 
     /**
@@ -131,8 +304,8 @@ public class AuthenticatedClient {
      *
      * @param accesses      An array of {@code Access} objects defining the permissions required by the client.
      * @param authServerUrl The URL of the authorization server's endpoint to send the grant request.
-     * @return A {@code Grant} object containing the grant details if the request is successful, 
-     *         or {@code null} if an error occurs during the process.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      *
      * Example usage:
      * <pre>
@@ -140,12 +313,11 @@ public class AuthenticatedClient {
      * Access[] accesses = { new Access("read"), new Access("write") };
      * String authServerUrl = "https://auth-server.example.com";
      *
-     * Grant grant = requestGrant(accesses, authServerUrl);
-     *
-     * if (grant != null) {
+     * try {
+     *     Grant grant = requestGrant(accesses, authServerUrl);
      *     System.out.println("Grant received: " + grant.getAccessToken());
-     * } else {
-     *     System.out.println("Failed to request grant.");
+     * } catch (OpenPaymentsException e) {
+     *     System.out.println("Failed to request grant: " + e.getErrorCode());
      * }
      * }
      * </pre>
@@ -153,29 +325,63 @@ public class AuthenticatedClient {
      * Notes:
      * - The method constructs a {@code GrantRequest} object with the specified accesses and wallet address.
      * - The JSON payload is signed and sent as a POST request to the authorization server.
-     * - The method replaces the reserved Java keyword {@code continue} with {@code continuation} in the response to allow parsing.
+     * - The {@code continue} field of the response is mapped to {@code Grant.continuation}, since {@code continue} is reserved in Java.
      * - Ensure the {@code authServerUrl} is valid and points to a compliant Open Payments authorization server.
-     * - Handle potential {@code null} values in the calling code to avoid {@code NullPointerException}.
+     * - Failures are reported as an {@code OpenPaymentsException} carrying the status code and the parsed error body.
      *
      * @see <a href="https://openpayments.dev/apis/auth-server/operations/post-request/">Authorization Server API - POST /request</a>
     */
     public Grant requestGrant(Access[] accesses, String authServerUrl){
+        return join(requestGrantAsync(accesses, authServerUrl));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestGrant(Access[], String)}.
+     *
+     * @return A future completed with the {@code Grant}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Grant> requestGrantAsync(Access[] accesses, String authServerUrl){
+        // move this to the grant request constructor rather
+        String[] start = {"redirect"};
+        Interaction interaction = new Interaction(start);
+        return sendGrantRequest(new GrantRequest(accesses, this.walletAddress, interaction), authServerUrl);
+    }
+
+    /**
+     * Requests a grant without offering any interaction, as the auth server can issue incoming payment and quote
+     * grants directly. The access token comes back in the response, so no continuation request is needed.
+     *
+     * @param accesses      The accesses to request, typically {@link IncomingPaymentAccess} or {@link QuoteAccess}.
+     * @param authServerUrl The URL of the authorization server's endpoint to send the grant request.
+     * @return A {@code Grant} carrying the access token.
+     * @throws OpenPaymentsException If the request fails, or the server rejects it, e.g. because the access requires
+     *                               interaction.
+     *
+     * @see <a href="https://openpayments.dev/apis/auth-server/operations/post-request/">Authorization Server API - POST /request</a>
+     */
+    public Grant requestNonInteractiveGrant(Access[] accesses, String authServerUrl){
+        return join(requestNonInteractiveGrantAsync(accesses, authServerUrl));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestNonInteractiveGrant(Access[], String)}.
+     *
+     * @return A future completed with the {@code Grant}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Grant> requestNonInteractiveGrantAsync(Access[] accesses, String authServerUrl){
+        return sendGrantRequest(new GrantRequest(accesses, this.walletAddress), authServerUrl);
+    }
+
+    private CompletableFuture<Grant> sendGrantRequest(GrantRequest grantRequest, String authServerUrl){
         try{
-            // move this to the grant request constructor rather
-            String[] start = {"redirect"};
-            Interaction interaction = new Interaction(start);
-            GrantRequest grantRequest = new GrantRequest(accesses, this.walletAddress, interaction);
-            String body = gson.toJson(grantRequest).strip();
+            byte[] body = encode(grantRequest, Operation.REQUEST_GRANT);
             PostRequest post = new PostRequest(authServerUrl+'/', body);
-            headerFactory.addDefaultHeaders(post.getConnection(), body); 
-            headerFactory.signRequest(post.getConnection(), body, null);
-            post.send();
-            String response = post.getResponse();
-            // since continue is reserved in java
-            response = response.replace("continue", "continuation");
-            return (Grant)gson.fromJson(response, Grant.class);
+            tag(post, Operation.REQUEST_GRANT);
+            headerFactory.addDefaultHeaders(post, body); 
+            headerFactory.signRequest(post, body, null);
+            return post.sendAsync(this.transport, this.codec, Grant.class);
         }catch(Exception e){
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -185,21 +391,151 @@ public class AuthenticatedClient {
      * @param accessToken GNAP Access Token associated with a Grant with permissions necessary to create an Incoming Payment at the RS.
      * @param amount The amount to be transfered.
      * @return An {@code IncomingPayment} object.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, int amount){
-        try{
-            IncomingPaymentRequest incomingPaymentRequest = new IncomingPaymentRequest(receivingWallet, amount);
-            String req_body = gson.toJson(incomingPaymentRequest).strip();
-            PostRequest post = new PostRequest(receivingWallet.resourceServer + "/incoming-payments", req_body);
-            headerFactory.addDefaultHeaders(post.getConnection(), req_body);
-            headerFactory.addAuthHeader(post.getConnection(), accessToken);
-            headerFactory.signRequest(post.getConnection(), req_body, accessToken);
-            post.send();
-            String response = post.getResponse();
-            return (IncomingPayment)gson.fromJson(response, IncomingPayment.class);
-        }catch(Exception e){
-            return null;
-        }
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, amount));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, int)}.
+     *
+     * @return A future completed with the {@code IncomingPayment}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, int amount){
+        return createIncomingPaymentAsync(receivingWallet, accessToken, (long) amount);
+    }
+
+    /**
+     * Creates an incoming payment for up to {@code amount}, in the smallest unit of the receiving wallet's asset.
+     *
+     * @param amount The amount to be transfered, an unsigned 64-bit integer: negative values stand for amounts above
+     *               {@link Long#MAX_VALUE}.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, long amount){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, amount));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, long)}.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, long amount){
+        IncomingPaymentRequest incomingPaymentRequest = new IncomingPaymentRequest(receivingWallet, amount);
+        return sendAuthorized(receivingWallet.resourceServer + "/incoming-payments", Operation.CREATE_INCOMING_PAYMENT, incomingPaymentRequest, accessToken, null, IncomingPayment.class);
+    }
+
+    /**
+     * Creates an incoming payment without an {@code incomingAmount}, which accepts any amount until it is completed
+     * or expires. Outgoing payments with a fixed debit amount are made against such an incoming payment.
+     *
+     * <p>All such requests for one wallet address have the same body, but each call creates a new incoming payment,
+     * even with an {@link #setIdempotencyLedger idempotency ledger}. Use
+     * {@link #createIncomingPayment(WalletAddress, String, String)} to make a call safe to repeat.</p>
+     *
+     * @param receivingWallet URL of a wallet address hosted by a Rafiki instance.
+     * @param accessToken GNAP Access Token associated with a Grant with permissions necessary to create an Incoming Payment at the RS.
+     * @return An {@code IncomingPayment} object.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String)}.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken){
+        return createIncomingPaymentAsync(receivingWallet, accessToken, (String) null);
+    }
+
+    /**
+     * Creates an incoming payment without an {@code incomingAmount} under a caller-chosen idempotency key.
+     *
+     * <p>With an {@link #setIdempotencyLedger idempotency ledger}, repeating the call with the same key returns the
+     * incoming payment the first call created instead of creating another one.</p>
+     *
+     * @param idempotencyKey Identifies this incoming payment, e.g. the ID of the payout it is for, and is reused when
+     *                       the call is repeated.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, String idempotencyKey){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, String)}.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, String idempotencyKey){
+        IncomingPaymentRequest incomingPaymentRequest = new IncomingPaymentRequest(receivingWallet);
+        return sendAuthorized(receivingWallet.resourceServer + "/incoming-payments", Operation.CREATE_INCOMING_PAYMENT, incomingPaymentRequest, accessToken, idempotencyKey, IncomingPayment.class);
+    }
+
+    /**
+     * 
+     * @param receivingWallet URL of a wallet address hosted by a Rafiki instance.
+     * @param accessToken GNAP Access Token associated with a Grant with permissions necessary to create an Incoming Payment at the RS.
+     * @param amount The amount to be transfered.
+     * @param expiresAt The date and time when payments into the incoming payment must no longer be accepted, as an ISO 8601 timestamp.
+     * @return An {@code IncomingPayment} object.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, int amount, String expiresAt){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, amount, expiresAt));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, int, String)}.
+     *
+     * @return A future completed with the {@code IncomingPayment}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, int amount, String expiresAt){
+        return createIncomingPaymentAsync(receivingWallet, accessToken, (long) amount, expiresAt);
+    }
+
+    /**
+     * Creates an incoming payment for up to {@code amount} that stops accepting payments at {@code expiresAt}.
+     *
+     * @param amount    The amount to be transfered, an unsigned 64-bit integer.
+     * @param expiresAt The date and time when payments into the incoming payment must no longer be accepted, as an ISO 8601 timestamp.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, long amount, String expiresAt){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, amount, expiresAt));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, long, String)}.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, long amount, String expiresAt){
+        return createIncomingPaymentAsync(receivingWallet, accessToken, amount, expiresAt, null);
+    }
+
+    /**
+     * Creates an incoming payment under a caller-chosen idempotency key, so that the call can be repeated safely.
+     *
+     * <p>With an {@link #setIdempotencyLedger idempotency ledger}, repeating the call with the same key returns the
+     * payment the first call created, or joins it while it is in flight, instead of creating a second one.</p>
+     *
+     * @param amount         The amount to be transfered, an unsigned 64-bit integer.
+     * @param expiresAt      The date and time when payments into the incoming payment must no longer be accepted, as
+     *                       an ISO 8601 timestamp, or {@code null} for the server's default.
+     * @param idempotencyKey Identifies this logical call, e.g. the ID of the order being paid, and is reused when the
+     *                       call is repeated.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public IncomingPayment createIncomingPayment(WalletAddress receivingWallet, String accessToken, long amount, String expiresAt,
+                                                 String idempotencyKey){
+        return join(createIncomingPaymentAsync(receivingWallet, accessToken, amount, expiresAt, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createIncomingPayment(WalletAddress, String, long, String, String)}.
+     */
+    public CompletableFuture<IncomingPayment> createIncomingPaymentAsync(WalletAddress receivingWallet, String accessToken, long amount, String expiresAt,
+                                                                         String idempotencyKey){
+        IncomingPaymentRequest incomingPaymentRequest = new IncomingPaymentRequest(receivingWallet, amount, expiresAt);
+        return sendAuthorized(receivingWallet.resourceServer + "/incoming-payments", Operation.CREATE_INCOMING_PAYMENT, incomingPaymentRequest, accessToken, idempotencyKey, IncomingPayment.class);
     }
 
     /**
@@ -207,49 +543,109 @@ public class AuthenticatedClient {
      * @param receiver The URL of the incoming payment that is being paid.
      * @param quoteGrant A Grant with Quote creation privileges.
      * @return A {@code Quote} object.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Quote createQuote(WalletAddress walletAddress, String receiver, Grant quoteGrant){
-        try{
-            QuoteRequest quoteRequest = new QuoteRequest(walletAddress.id, receiver);
-            String req_body = gson.toJson(quoteRequest).strip();
-            PostRequest post = new PostRequest(walletAddress.resourceServer + "/quotes", req_body);
-            headerFactory.addDefaultHeaders(post.getConnection(), req_body);
-            headerFactory.addAuthHeader(post.getConnection(), quoteGrant.access_token.value);
-            headerFactory.signRequest(post.getConnection(), req_body, quoteGrant.access_token.value);
-            post.send();
-            String response = post.getResponse();
-            return (Quote)gson.fromJson(response, Quote.class);
-        }catch(Exception e){
-            return null;
-        }
+        return join(createQuoteAsync(walletAddress, receiver, quoteGrant));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createQuote(WalletAddress, String, Grant)}.
+     *
+     * @return A future completed with the {@code Quote}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Quote> createQuoteAsync(WalletAddress walletAddress, String receiver, Grant quoteGrant){
+        QuoteRequest quoteRequest = new QuoteRequest(walletAddress.id, receiver);
+        return sendAuthorized(walletAddress.resourceServer + "/quotes", Operation.CREATE_QUOTE, quoteRequest, quoteGrant.access_token.value, null, Quote.class);
     }
 
     /**
      * Requests a grant for creating an incoming payment using the provided wallet address.
      *
-     * <p>This method generates an access request for creating incoming payments and sends it to the authorization server.</p>
+     * <p>This method generates an access request for creating incoming payments and sends it to the authorization server.
+     * No interaction is requested, so the access token is returned in a single round trip.</p>
      *
      * @param walletAddress The wallet address for which the grant is requested.
-     * @return A {@code Grant} object containing the grant details if the request is successful, or {@code null} if an error occurs.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant requestIncomingPaymentGrant(WalletAddress walletAddress){
+        return join(requestIncomingPaymentGrantAsync(walletAddress));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestIncomingPaymentGrant(WalletAddress)}.
+     */
+    public CompletableFuture<Grant> requestIncomingPaymentGrantAsync(WalletAddress walletAddress){
         String[] actions = {"create"};
         Access[] accesses = {new IncomingPaymentAccess(actions)};
-        return requestGrant(accesses, walletAddress.authServer);
+        return requestStoredGrantAsync(accesses, walletAddress.authServer);
     }
 
     /**
      * Requests a grant for creating a quote using the provided wallet address.
      *
-     * <p>This method generates an access request for creating quotes and sends it to the authorization server.</p>
+     * <p>This method generates an access request for creating quotes and sends it to the authorization server.
+     * No interaction is requested, so the access token is returned in a single round trip.</p>
      *
      * @param walletAddress The wallet address for which the grant is requested.
-     * @return A {@code Grant} object containing the grant details if the request is successful, or {@code null} if an error occurs.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant requestQuoteGrant(WalletAddress walletAddress){
+        return join(requestQuoteGrantAsync(walletAddress));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestQuoteGrant(WalletAddress)}.
+     */
+    public CompletableFuture<Grant> requestQuoteGrantAsync(WalletAddress walletAddress){
         String[] actions = {"create"};
         Access[] accesses = {new QuoteAccess(actions)};
-        return requestGrant(accesses, walletAddress.authServer);
+        return requestStoredGrantAsync(accesses, walletAddress.authServer);
+    }
+
+    /**
+     * Requests a non-interactive grant for a single access, reusing one from the {@link TokenStore} if this client has one.
+     */
+    private CompletableFuture<Grant> requestStoredGrantAsync(Access[] accesses, String authServerUrl){
+        TokenStore store = this.tokenStore;
+        if(store == null){
+            return requestNonInteractiveGrantAsync(accesses, authServerUrl);
+        }
+        Access access = accesses[0];
+        TokenStore.Key key = new TokenStore.Key(clientId(), authServerUrl, access.type, access.actions, access.identifier);
+        return store.get(key, () -> requestNonInteractiveGrantAsync(accesses, authServerUrl), this::rotateAccessTokenAsync);
+    }
+
+    /**
+     * Rotates an access token through its {@code manage} URL. The auth server revokes the old token and issues a new
+     * one with the same access.
+     *
+     * @param accessToken The token to rotate.
+     * @return The new access token.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     *
+     * @see <a href="https://openpayments.dev/apis/auth-server/operations/post-token/">Authorization Server API - Rotate Access Token</a>
+     */
+    public Grant.AccessToken rotateAccessToken(Grant.AccessToken accessToken){
+        return join(rotateAccessTokenAsync(accessToken));
+    }
+
+    /**
+     * Asynchronous variant of {@link #rotateAccessToken(Grant.AccessToken)}.
+     */
+    public CompletableFuture<Grant.AccessToken> rotateAccessTokenAsync(Grant.AccessToken accessToken){
+        try{
+            PostRequest post = new PostRequest(accessToken.manage, new byte[0]);
+            tag(post, Operation.ROTATE_TOKEN);
+            headerFactory.addDefaultHeaders(post);
+            headerFactory.addAuthHeader(post, accessToken.value);
+            headerFactory.signRequest(post, (byte[]) null, accessToken.value);
+            return post.sendAsync(this.transport, this.codec, Grant.class).thenApply(grant -> grant.access_token);
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     /**
@@ -258,7 +654,8 @@ public class AuthenticatedClient {
      * <p>This method generates an access request for creating outgoing payments and sends it to the authorization server.</p>
      *
      * @param walletAddress The wallet address for which the grant is requested.
-     * @return A {@code Grant} object containing the grant details if the request is successful, or {@code null} if an error occurs.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant requestOutgoingPaymentGrant(WalletAddress walletAddress){
         String[] actions = {"create"};
@@ -266,6 +663,79 @@ public class AuthenticatedClient {
         return requestGrant(accesses, walletAddress.authServer);
     }
 
+    /**
+     * Asynchronous variant of {@link #requestOutgoingPaymentGrant(WalletAddress)}.
+     */
+    public CompletableFuture<Grant> requestOutgoingPaymentGrantAsync(WalletAddress walletAddress){
+        String[] actions = {"create"};
+        Access[] accesses = {new OutgoingPaymentAccess(actions, walletAddress.id)};
+        return requestGrantAsync(accesses, walletAddress.authServer);
+    }
+
+    /**
+     * Requests a grant for creating outgoing payments up to {@code limit}, so that one grant, and one user
+     * interaction, covers many payments. A {@link open_payments.cache.BudgetLedger} tracks the spend against it.
+     *
+     * @param walletAddress The wallet address for which the grant is requested.
+     * @param limit         The most that may be debited or received, optionally per repeating interval.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public Grant requestOutgoingPaymentGrant(WalletAddress walletAddress, Limit limit){
+        return join(requestOutgoingPaymentGrantAsync(walletAddress, limit));
+    }
+
+    /**
+     * Asynchronous variant of {@link #requestOutgoingPaymentGrant(WalletAddress, Limit)}.
+     */
+    public CompletableFuture<Grant> requestOutgoingPaymentGrantAsync(WalletAddress walletAddress, Limit limit){
+        String[] actions = {"create"};
+        Access[] accesses = {new OutgoingPaymentAccess(actions, walletAddress.id, limit)};
+        return requestGrantAsync(accesses, walletAddress.authServer);
+    }
+
+    /**
+     * Reserves a payment's amounts against an outgoing payment grant with {@code limit}, so that many payments share
+     * one grant and one user interaction.
+     *
+     * <p>With a {@link #setBudgetLedger budget ledger}, the amounts are reserved against the grant the ledger holds for
+     * this client and {@code walletAddress}. Once that grant's budget or interval has run out, or its token has
+     * expired, a new grant is requested and authorised, and shared by the payments that follow. Without a ledger, a
+     * new grant is requested for every call. Create the payment with {@link GrantBudget.Reservation#getGrant()}, and
+     * {@linkplain GrantBudget.Reservation#release() release} the reservation if it fails.</p>
+     *
+     * @param walletAddress The wallet address the payment is sent from.
+     * @param limit         The limits to request new grants with.
+     * @param debitAmount   The amount the payment debits, as an unsigned 64-bit integer in the sending wallet's asset.
+     * @param receiveAmount The amount the payment delivers, as an unsigned 64-bit integer, or 0 if not known.
+     * @param authorizer    Completes the interaction for a grant that is not issued immediately, e.g.
+     *                      {@code scheduler::schedule} of a grant continuation scheduler.
+     * @return A future completed with the reservation, or completed exceptionally with an
+     *         {@link IllegalArgumentException} if the amounts exceed {@code limit} itself.
+     */
+    public CompletableFuture<GrantBudget.Reservation> reserveOutgoingPaymentBudgetAsync(WalletAddress walletAddress, Limit limit,
+                                                                                        long debitAmount, long receiveAmount,
+                                                                                        Function<Grant, CompletableFuture<Grant>> authorizer){
+        BudgetLedger ledger = this.budgetLedger;
+        if(ledger == null){
+            return requestOutgoingPaymentGrantAsync(walletAddress, limit).thenCompose(grant -> authorize(grant, authorizer))
+                .thenCompose(grant -> {
+                    GrantBudget.Reservation reservation = new GrantBudget(grant, limit).tryReserve(debitAmount, receiveAmount);
+                    return reservation != null ? CompletableFuture.completedFuture(reservation)
+                        : CompletableFuture.failedFuture(new IllegalArgumentException("payment exceeds the limits of the grant"));
+                });
+        }
+        String[] actions = {"create"};
+        TokenStore.Key key = new TokenStore.Key(clientId(), walletAddress.authServer, "outgoing-payment", actions, walletAddress.id);
+        return ledger.reserve(key, limit, debitAmount, receiveAmount,
+            () -> requestOutgoingPaymentGrantAsync(walletAddress, limit).thenCompose(grant -> authorize(grant, authorizer)));
+    }
+
+    private static CompletableFuture<Grant> authorize(Grant grant, Function<Grant, CompletableFuture<Grant>> authorizer){
+        // issued without interaction
+        return grant.access_token != null ? CompletableFuture.completedFuture(grant) : authorizer.apply(grant);
+    }
+
     /**
      * Requests a grant for creating an outgoing payment with additional redirection and nonce parameters.
      *
@@ -275,7 +745,8 @@ public class AuthenticatedClient {
      * @param walletAddress The wallet address for which the grant is requested.
      * @param redirectUrl The URL to which the user will be redirected after the interaction.
      * @param nonce A unique value associated with the request for security purposes.
-     * @return A {@code Grant} object containing the grant details if the request is successful, or {@code null} if an error occurs.
+     * @return A {@code Grant} object containing the grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant requestOutgoingPaymentGrant(WalletAddress walletAddress, String redirectUrl, String nonce){
         String[] actions = {"create"};
@@ -283,6 +754,15 @@ public class AuthenticatedClient {
         return requestGrant(accesses, walletAddress.authServer , redirectUrl, nonce);
     }
 
+    /**
+     * Asynchronous variant of {@link #requestOutgoingPaymentGrant(WalletAddress, String, String)}.
+     */
+    public CompletableFuture<Grant> requestOutgoingPaymentGrantAsync(WalletAddress walletAddress, String redirectUrl, String nonce){
+        String[] actions = {"create"};
+        Access[] accesses = {new OutgoingPaymentAccess(actions, walletAddress.id)};
+        return requestGrantAsync(accesses, walletAddress.authServer, redirectUrl, nonce);
+    }
+
 
     /**
      * Creates an outgoing payment by sending a request to the resource server.
@@ -293,23 +773,218 @@ public class AuthenticatedClient {
      * @param walletAddress The wallet address associated with the outgoing payment.
      * @param quote The quote object containing payment details.
      * @param grant The authorization grant to be used for the request.
-     * @return An {@code OutgoingPayment} object containing the payment details if successful, 
-     *         or {@code null} if an error occurs during the process.
+     * @return An {@code OutgoingPayment} object containing the payment details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public OutgoingPayment createOutgoingPayment(WalletAddress walletAddress, Quote quote, Grant grant){
+        return join(createOutgoingPaymentAsync(walletAddress, quote, grant));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOutgoingPayment(WalletAddress, Quote, Grant)}.
+     *
+     * @return A future completed with the {@code OutgoingPayment}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<OutgoingPayment> createOutgoingPaymentAsync(WalletAddress walletAddress, Quote quote, Grant grant){
+        return createOutgoingPaymentAsync(walletAddress, quote, grant, null);
+    }
+
+    /**
+     * Creates an outgoing payment under a caller-chosen idempotency key, so that the call can be repeated safely.
+     *
+     * <p>With an {@link #setIdempotencyLedger idempotency ledger}, repeating the call with the same key returns the
+     * payment the first call created, or joins it while it is in flight, instead of paying twice.</p>
+     *
+     * @param idempotencyKey Identifies this logical payment, e.g. the ID of the payout, and is reused when the call
+     *                       is repeated.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public OutgoingPayment createOutgoingPayment(WalletAddress walletAddress, Quote quote, Grant grant, String idempotencyKey){
+        return join(createOutgoingPaymentAsync(walletAddress, quote, grant, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOutgoingPayment(WalletAddress, Quote, Grant, String)}.
+     */
+    public CompletableFuture<OutgoingPayment> createOutgoingPaymentAsync(WalletAddress walletAddress, Quote quote, Grant grant, String idempotencyKey){
+        OutgoingPaymentRequest request = new OutgoingPaymentRequest(walletAddress, quote);
+        return sendAuthorized(walletAddress.resourceServer + "/outgoing-payments", Operation.CREATE_OUTGOING_PAYMENT, request, grant.access_token.value, idempotencyKey, OutgoingPayment.class);
+    }
+
+    /**
+     * Creates an outgoing payment that pays {@code debitAmount} straight into an incoming payment, without a quote.
+     *
+     * <p>The sending wallet's account servicing entity converts and deducts fees itself, so this suits payments
+     * where the debit amount is fixed by the sender, such as payouts in the sending wallet's own asset. It saves the
+     * quote grant and the quote, two round trips per payment. Use {@link #createOutgoingPayment(WalletAddress, Quote, Grant)}
+     * when the receiver must get an exact amount.</p>
+     *
+     * @param walletAddress   The wallet address the payment is sent from.
+     * @param incomingPayment The incoming payment to pay into.
+     * @param debitAmount     The amount to debit, in the sending wallet's asset and scale.
+     * @param grant           An outgoing payment grant for {@code walletAddress}.
+     * @return An {@code OutgoingPayment} object containing the payment details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public OutgoingPayment createOutgoingPayment(WalletAddress walletAddress, IncomingPayment incomingPayment, Amount debitAmount, Grant grant){
+        return join(createOutgoingPaymentAsync(walletAddress, incomingPayment, debitAmount, grant));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOutgoingPayment(WalletAddress, IncomingPayment, Amount, Grant)}.
+     *
+     * @return A future completed with the {@code OutgoingPayment}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<OutgoingPayment> createOutgoingPaymentAsync(WalletAddress walletAddress, IncomingPayment incomingPayment,
+                                                                         Amount debitAmount, Grant grant){
+        return createOutgoingPaymentAsync(walletAddress, incomingPayment, debitAmount, grant, null);
+    }
+
+    /**
+     * Creates an outgoing payment with a fixed debit amount under a caller-chosen idempotency key.
+     *
+     * <p>Identical payouts, such as the same amount paid into the same incoming payment twice, are distinct payments
+     * unless they share a key. With an {@link #setIdempotencyLedger idempotency ledger}, repeating the call with the
+     * same key returns the payment the first call created, or joins it while it is in flight, instead of paying twice.</p>
+     *
+     * @param idempotencyKey Identifies this payout and is reused when the call is repeated.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
+     */
+    public OutgoingPayment createOutgoingPayment(WalletAddress walletAddress, IncomingPayment incomingPayment, Amount debitAmount, Grant grant,
+                                                 String idempotencyKey){
+        return join(createOutgoingPaymentAsync(walletAddress, incomingPayment, debitAmount, grant, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOutgoingPayment(WalletAddress, IncomingPayment, Amount, Grant, String)}.
+     */
+    public CompletableFuture<OutgoingPayment> createOutgoingPaymentAsync(WalletAddress walletAddress, IncomingPayment incomingPayment,
+                                                                         Amount debitAmount, Grant grant, String idempotencyKey){
+        OutgoingPaymentRequest request = new OutgoingPaymentRequest(walletAddress, incomingPayment, debitAmount);
+        return sendAuthorized(walletAddress.resourceServer + "/outgoing-payments", Operation.CREATE_OUTGOING_PAYMENT, request, grant.access_token.value, idempotencyKey, OutgoingPayment.class);
+    }
+
+    /**
+     * Serialises {@code requestBody}, signs it with {@code accessToken} and POSTs it to {@code url}.
+     *
+     * @param idempotencyKey The caller's key for a payment creation, or {@code null} to treat the call as new.
+     */
+    private <T> CompletableFuture<T> sendAuthorized(String url, Operation operation, Object requestBody, String accessToken, String idempotencyKey,
+                                                    Class<T> responseType){
+        byte[] req_body;
+        try{
+            req_body = encode(requestBody, operation);
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
+        }
+        IdempotencyLedger ledger = this.idempotencyLedger;
+        if(ledger == null){
+            return sendSigned(url, operation, req_body, accessToken, idempotencyKey, responseType);
+        }
+        if(idempotencyKey == null){
+            // a call of its own, never matched with another however similar its body
+            return sendSigned(url, operation, req_body, accessToken, IdempotencyLedger.newKey(), responseType);
+        }
+        String fingerprint = IdempotencyLedger.fingerprint(clientId(), "POST", url, req_body);
+        return ledger.execute(clientId(), idempotencyKey, fingerprint, key -> sendSigned(url, operation, req_body, accessToken, key, responseType));
+    }
+
+    private <T> CompletableFuture<T> sendSigned(String url, Operation operation, byte[] req_body, String accessToken, String idempotencyKey, Class<T> responseType){
         try{
-            OutgoingPaymentRequest request = new OutgoingPaymentRequest(walletAddress, quote);
-            String req_body = gson.toJson(request).strip();
-            PostRequest post = new PostRequest(walletAddress.resourceServer + "/outgoing-payments", req_body);
-            headerFactory.addDefaultHeaders(post.getConnection(), req_body);
-            headerFactory.addAuthHeader(post.getConnection(), grant.access_token.value);
-            headerFactory.signRequest(post.getConnection(),req_body, grant.access_token.value);
-            post.send();
-            String response = post.getResponse();
-            return (OutgoingPayment)gson.fromJson(response, OutgoingPayment.class);
+            PostRequest post = new PostRequest(url, req_body);
+            tag(post, operation);
+            headerFactory.addDefaultHeaders(post, req_body);
+            headerFactory.addAuthHeader(post, accessToken);
+            if(idempotencyKey != null){
+                post.setHeader(IdempotencyLedger.HEADER, idempotencyKey);
+            }
+            headerFactory.signRequest(post, req_body, accessToken);
+            return post.sendAsync(this.transport, this.codec, responseType);
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Lists the incoming payments of {@code walletAddress}, 100 per page.
+     *
+     * <p>Pages are requested as the iterator is consumed, with the next page fetched in the background, so memory use
+     * does not grow with the number of payments. The access token must come from a grant for {@code incoming-payment}
+     * with the {@code list} or {@code list-all} action.</p>
+     *
+     * @param walletAddress The wallet address whose incoming payments are listed.
+     * @param accessToken   GNAP Access Token of a grant allowing the listing.
+     * @return A lazy iterator; its {@code hasNext} throws {@code OpenPaymentsException} if a page cannot be fetched.
+     *
+     * @see <a href="https://openpayments.dev/apis/resource-server/operations/list-incoming-payments/">Resource Server API - List Incoming Payments</a>
+     */
+    public PageIterator<IncomingPayment> listIncomingPayments(WalletAddress walletAddress, String accessToken){
+        return new PageIterator<>(cursor -> listIncomingPaymentsAsync(walletAddress, accessToken, cursor, DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * Fetches one page of the incoming payments of {@code walletAddress}.
+     *
+     * @param cursor The {@code endCursor} of the previous page, or {@code null} for the first page.
+     * @param first  The number of incoming payments per page, at most 100.
+     * @return A future completed with the page, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Page<IncomingPayment>> listIncomingPaymentsAsync(WalletAddress walletAddress, String accessToken, String cursor, int first){
+        return sendList(walletAddress.resourceServer + "/incoming-payments", Operation.LIST_INCOMING_PAYMENTS, walletAddress,
+            accessToken, cursor, first, INCOMING_PAYMENT_PAGE);
+    }
+
+    /**
+     * Lists the outgoing payments of {@code walletAddress}, 100 per page, in the same way as
+     * {@link #listIncomingPayments(WalletAddress, String)}. The access token must come from a grant for
+     * {@code outgoing-payment} with the {@code list} or {@code list-all} action.
+     *
+     * @see <a href="https://openpayments.dev/apis/resource-server/operations/list-outgoing-payments/">Resource Server API - List Outgoing Payments</a>
+     */
+    public PageIterator<OutgoingPayment> listOutgoingPayments(WalletAddress walletAddress, String accessToken){
+        return new PageIterator<>(cursor -> listOutgoingPaymentsAsync(walletAddress, accessToken, cursor, DEFAULT_PAGE_SIZE));
+    }
 
+    /**
+     * Fetches one page of the outgoing payments of {@code walletAddress}.
+     *
+     * @param cursor The {@code endCursor} of the previous page, or {@code null} for the first page.
+     * @param first  The number of outgoing payments per page, at most 100.
+     * @return A future completed with the page, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Page<OutgoingPayment>> listOutgoingPaymentsAsync(WalletAddress walletAddress, String accessToken, String cursor, int first){
+        return sendList(walletAddress.resourceServer + "/outgoing-payments", Operation.LIST_OUTGOING_PAYMENTS, walletAddress,
+            accessToken, cursor, first, OUTGOING_PAYMENT_PAGE);
+    }
+
+    /**
+     * Sends a signed GET for one page of a list and decodes the page from the response body. The transport buffers the
+     * whole body, so each page is held in memory once as bytes; its size is bounded by {@code first}.
+     */
+    private <T> CompletableFuture<Page<T>> sendList(String url, Operation operation, WalletAddress walletAddress, String accessToken,
+                                                    String cursor, int first, Type pageType){
+        try{
+            StringBuilder target = new StringBuilder(url)
+                .append("?wallet-address=").append(URLEncoder.encode(walletAddress.id, StandardCharsets.UTF_8))
+                .append("&first=").append(first);
+            if(cursor != null){
+                target.append("&cursor=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            }
+            GetRequest get = new GetRequest(target.toString(), new HashMap<>());
+            tag(get, operation);
+            headerFactory.addDefaultHeaders(get);
+            headerFactory.addAuthHeader(get, accessToken);
+            headerFactory.signRequest(get, (byte[]) null, accessToken);
+            ClientMetrics metrics = this.metrics;
+            return get.execute(this.transport).thenApply(response -> {
+                long start = System.nanoTime();
+                byte[] body = response.getBody();
+                Page<T> page = this.codec.decode(body, pageType);
+                metrics.deserialized(operation, System.nanoTime() - start, body.length);
+                return page;
+            });
         }catch(Exception e){
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -320,20 +995,29 @@ public class AuthenticatedClient {
      * to the authorization server, potentially completing the grant and returning the updated {@code Grant} object.</p>
      *
      * @param grant The {@code Grant} object containing continuation information.
-     * @return A {@code Grant} object, 
-     *         or {@code null} if an error occurs during the process.
+     * @return A {@code Grant} object.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant continueGrant(Grant grant){
+        return join(continueGrantAsync(grant));
+    }
+
+    /**
+     * Asynchronous variant of {@link #continueGrant(Grant)}.
+     *
+     * @return A future completed with the continued {@code Grant}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Grant> continueGrantAsync(Grant grant){
         try{
-            PostRequest post = new PostRequest(grant.continuation.uri.replace("continuation", "continue"), "");
-            headerFactory.addDefaultHeaders(post.getConnection());
-            headerFactory.addAuthHeader(post.getConnection(), grant.continuation.access_token.value);
-            headerFactory.signRequest(post.getConnection(), null, grant.continuation.access_token.value);
-            post.send();
-            String response = post.getResponse();
-            return (Grant)gson.fromJson(response, Grant.class);
+            PostRequest post = new PostRequest(grant.continuation.uri, new byte[0]);
+            tag(post, Operation.CONTINUE_GRANT);
+            headerFactory.addDefaultHeaders(post);
+            headerFactory.addAuthHeader(post, grant.continuation.access_token.value);
+            // the empty body is not covered by the signature
+            headerFactory.signRequest(post, (byte[]) null, grant.continuation.access_token.value);
+            return post.sendAsync(this.transport, this.codec, Grant.class);
         }catch(Exception e){
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -345,22 +1029,60 @@ public class AuthenticatedClient {
      * @param grantContinuationUri The URI to which the continuation request is sent.
      * @param continuationAccessToken The access token used to authorize the continuation request.
      * @param interactionReference A reference to the interaction that is being continued.
-     * @return A {@code Grant} object containing the updated grant details if successful, 
-     *         or {@code null} if an error occurs during the process.
+     * @return A {@code Grant} object containing the updated grant details.
+     * @throws OpenPaymentsException If the request fails or the server responds with an error.
      */
     public Grant continueGrant(String grantContinuationUri, String continuationAccessToken, String interactionReference){
+        return join(continueGrantAsync(grantContinuationUri, continuationAccessToken, interactionReference));
+    }
+
+    /**
+     * Asynchronous variant of {@link #continueGrant(String, String, String)}.
+     *
+     * @return A future completed with the continued {@code Grant}, or completed exceptionally if the request fails.
+     */
+    public CompletableFuture<Grant> continueGrantAsync(String grantContinuationUri, String continuationAccessToken, String interactionReference){
         try{
-            String body = String.format("{\"interact_ref\": %s}", interactionReference);
-            PostRequest post = new PostRequest(grantContinuationUri.replace("continuation", "continue"), body);
-            headerFactory.addDefaultHeaders(post.getConnection());
-            headerFactory.addAuthHeader(post.getConnection(), continuationAccessToken);
-            headerFactory.signRequest(post.getConnection(), body, continuationAccessToken);
-            post.send();
-            String response = post.getResponse();
-            return (Grant)gson.fromJson(response, Grant.class);
+            byte[] body = String.format("{\"interact_ref\": %s}", interactionReference).getBytes(StandardCharsets.UTF_8);
+            PostRequest post = new PostRequest(grantContinuationUri, body);
+            tag(post, Operation.CONTINUE_GRANT);
+            headerFactory.addDefaultHeaders(post, body);
+            headerFactory.addAuthHeader(post, continuationAccessToken);
+            headerFactory.signRequest(post, body, continuationAccessToken);
+            return post.sendAsync(this.transport, this.codec, Grant.class);
         }catch(Exception e){
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
+    /**
+     * Identifies this client in stores and ledgers that may be shared with the clients of other wallet addresses.
+     */
+    private String clientId(){
+        return this.walletAddress + " " + this.headerFactory.getKeyId();
+    }
+
+    private void tag(Request request, Operation operation){
+        request.setOperation(operation);
+        request.setMetrics(this.metrics);
+    }
+
+    private byte[] encode(Object requestBody, Operation operation){
+        ClientMetrics metrics = this.metrics;
+        long start = System.nanoTime();
+        byte[] body = codec.encode(requestBody);
+        metrics.serialized(operation, System.nanoTime() - start, body.length);
+        return body;
+    }
+
+    /**
+     * Waits for {@code future}, rethrowing its failure as an {@link OpenPaymentsException}.
+     */
+    private static <T> T join(CompletableFuture<T> future){
+        try{
+            return future.join();
+        }catch(CompletionException e){
+            throw OpenPaymentsException.wrap(null, e.getCause() != null ? e.getCause() : e);
+        }
+    }
 }
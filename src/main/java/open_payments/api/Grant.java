@@ -2,6 +2,7 @@ package open_payments.api;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
 
 public class Grant {
     /**
@@ -14,7 +15,9 @@ public class Grant {
     public AccessToken access_token;
     /**
      * If the AS determines that the request can be continued with additional requests, it responds with the continue field.
+     * Named {@code continuation} since {@code continue} is reserved in Java.
      */
+    @SerializedName("continue")
     public Continue continuation;
     
     public class AccessToken{
@@ -1,5 +1,9 @@
 package open_payments.api;
 
+/**
+ * The limits of an outgoing payment grant: the most that may be debited or received, optionally per repeating
+ * interval such as {@code R/2024-01-01T00:00:00Z/P1D}.
+ */
 public class Limit {
    String receiver;
    Amount debitAmount;
@@ -28,4 +32,31 @@ public class Limit {
         this.interval = interval;
    }
 
+   /**
+    * @return The incoming payment URL the grant is limited to paying, or {@code null}.
+    */
+   public String getReceiver(){
+        return this.receiver;
+   }
+
+   /**
+    * @return The most that may be debited, per interval if there is one, or {@code null} for no debit limit.
+    */
+   public Amount getDebitAmount(){
+        return this.debitAmount;
+   }
+
+   /**
+    * @return The most that may be received, per interval if there is one, or {@code null} for no receive limit.
+    */
+   public Amount getReceiveAmount(){
+        return this.receiveAmount;
+   }
+
+   /**
+    * @return The ISO 8601 repeating interval the limits apply to, or {@code null} if they apply to the grant as a whole.
+    */
+   public String getInterval(){
+        return this.interval;
+   }
 }
@@ -0,0 +1,190 @@
+package open_payments.api;
+import open_payments.cache.BudgetLedger;
+import open_payments.cache.IdempotencyLedger;
+import open_payments.cache.TokenStore;
+import open_payments.cache.WalletAddressCache;
+import open_payments.http_requests.HttpClientTransport;
+import open_payments.http_requests.HttpTransport;
+import open_payments.http_utils.SignerRegistry;
+import open_payments.http_utils.SigningEngine;
+import open_payments.metrics.ClientMetrics;
+
+/**
+ * Serves many wallet addresses, each with its own key, from one set of shared infrastructure: the transport and its
+ * connection pool, the signing keys, the wallet address cache, the token store, the idempotency ledger, the budget
+ * ledger and the metrics. Instances are immutable and created through {@link #builder()}.
+ *
+ * <p>{@link #tenant(String, String)} returns an {@link AuthenticatedClient} for one wallet address. It holds only
+ * references to the shared parts, so it can be created per request rather than kept per tenant:</p>
+ *
+ * <pre>
+ * {@code
+ * MultiTenantClient clients = MultiTenantClient.builder()
+ *     .signers(keys)
+ *     .walletAddressCache(new WalletAddressCache())
+ *     .tokenStore(new TokenStore())
+ *     .build();
+ *
+ * clients.tenant("https://wallet.example/merchant-42", "key-42").createQuote(...);
+ * }
+ * </pre>
+ *
+ * <p>Stored grants, budgets and idempotency records are kept apart per wallet address and key ID, so tenants never see each
+ * other's tokens or payments.</p>
+ */
+public class MultiTenantClient {
+    final HttpTransport transport;
+    final SignerRegistry signers;
+    final WalletAddressCache walletAddressCache;
+    final TokenStore tokenStore;
+    final IdempotencyLedger idempotencyLedger;
+    final BudgetLedger budgetLedger;
+    final ClientMetrics metrics;
+
+    private MultiTenantClient(Builder builder){
+        this.transport = builder.transport;
+        this.signers = builder.signers;
+        this.walletAddressCache = builder.walletAddressCache;
+        this.tokenStore = builder.tokenStore;
+        this.idempotencyLedger = builder.idempotencyLedger;
+        this.budgetLedger = builder.budgetLedger;
+        this.metrics = builder.metrics;
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    /**
+     * Returns a client acting for {@code walletAddress}, signing with the key registered under {@code keyId}.
+     *
+     * @param walletAddress The tenant's wallet address URL.
+     * @param keyId         The key ID of a key in this client's {@link SignerRegistry}.
+     * @return A client sharing this instance's transport, caches and metrics.
+     * @throws IllegalArgumentException If no key is registered under {@code keyId}.
+     */
+    public AuthenticatedClient tenant(String walletAddress, String keyId){
+        return tenant(walletAddress, keyId, this.signers.require(keyId));
+    }
+
+    /**
+     * Returns a client acting for {@code walletAddress}, signing with {@code signer}.
+     *
+     * @param walletAddress The tenant's wallet address URL.
+     * @param keyId         The key ID sent in the signature parameters.
+     * @param signer        The signer for the tenant's private key.
+     * @return A client sharing this instance's transport, caches and metrics.
+     */
+    public AuthenticatedClient tenant(String walletAddress, String keyId, SigningEngine signer){
+        AuthenticatedClient client = new AuthenticatedClient(walletAddress, signer, keyId, this.transport);
+        client.setWalletAddressCache(this.walletAddressCache);
+        client.setTokenStore(this.tokenStore);
+        client.setIdempotencyLedger(this.idempotencyLedger);
+        client.setBudgetLedger(this.budgetLedger);
+        client.setMetrics(this.metrics);
+        return client;
+    }
+
+    public HttpTransport getTransport(){
+        return this.transport;
+    }
+
+    public SignerRegistry getSigners(){
+        return this.signers;
+    }
+
+    public WalletAddressCache getWalletAddressCache(){
+        return this.walletAddressCache;
+    }
+
+    public TokenStore getTokenStore(){
+        return this.tokenStore;
+    }
+
+    public IdempotencyLedger getIdempotencyLedger(){
+        return this.idempotencyLedger;
+    }
+
+    public BudgetLedger getBudgetLedger(){
+        return this.budgetLedger;
+    }
+
+    public ClientMetrics getMetrics(){
+        return this.metrics;
+    }
+
+    public static class Builder {
+        HttpTransport transport = HttpClientTransport.getDefault();
+        SignerRegistry signers = SignerRegistry.getDefault();
+        WalletAddressCache walletAddressCache = null;
+        TokenStore tokenStore = null;
+        IdempotencyLedger idempotencyLedger = null;
+        BudgetLedger budgetLedger = null;
+        ClientMetrics metrics = ClientMetrics.NOOP;
+
+        private Builder(){}
+
+        /**
+         * @param transport The transport all tenants send their requests through.
+         */
+        public Builder transport(HttpTransport transport){
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * @param signers The keys of the tenants, looked up by key ID. Defaults to {@link SignerRegistry#getDefault()}.
+         */
+        public Builder signers(SignerRegistry signers){
+            this.signers = signers;
+            return this;
+        }
+
+        /**
+         * @param walletAddressCache The cache all tenants resolve wallet addresses through, or {@code null} for none.
+         */
+        public Builder walletAddressCache(WalletAddressCache walletAddressCache){
+            this.walletAddressCache = walletAddressCache;
+            return this;
+        }
+
+        /**
+         * @param tokenStore The store all tenants keep reusable grants in, or {@code null} to request a grant every time.
+         */
+        public Builder tokenStore(TokenStore tokenStore){
+            this.tokenStore = tokenStore;
+            return this;
+        }
+
+        /**
+         * @param idempotencyLedger The ledger all tenants record payment creation in, or {@code null} for none.
+         */
+        public Builder idempotencyLedger(IdempotencyLedger idempotencyLedger){
+            this.idempotencyLedger = idempotencyLedger;
+            return this;
+        }
+
+        /**
+         * @param budgetLedger The ledger all tenants share outgoing payment grants through, or {@code null} for none.
+         */
+        public Builder budgetLedger(BudgetLedger budgetLedger){
+            this.budgetLedger = budgetLedger;
+            return this;
+        }
+
+        /**
+         * @param metrics The metrics all tenants record in, or {@code null} to record nothing.
+         */
+        public Builder metrics(ClientMetrics metrics){
+            this.metrics = metrics == null ? ClientMetrics.NOOP : metrics;
+            return this;
+        }
+
+        public MultiTenantClient build(){
+            if(this.transport == null || this.signers == null){
+                throw new IllegalArgumentException("transport and signers are required");
+            }
+            return new MultiTenantClient(this);
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class OutgoingPaymentRequest {
         this.debitAmount = debitAmount;
     }
 
-
-
+    OutgoingPaymentRequest(WalletAddress walletAddress, IncomingPayment incomingPayment, Amount debitAmount){
+        this(incomingPayment, debitAmount);
+        this.walletAddress = walletAddress.id;
+    }
 }
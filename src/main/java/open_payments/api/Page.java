@@ -0,0 +1,60 @@
+package open_payments.api;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated list of incoming or outgoing payments.
+ *
+ * @param <T> The type of the listed resources.
+ */
+public class Page<T> {
+    /**
+     * Cursors and flags to request the neighbouring pages with.
+     */
+    PageInfo pagination;
+
+    /**
+     * The resources on this page, in the order the resource server returned them.
+     */
+    List<T> result;
+
+    public PageInfo getPagination(){
+        return this.pagination;
+    }
+
+    public List<T> getResult(){
+        return this.result == null ? Collections.emptyList() : this.result;
+    }
+
+    /**
+     * @return The cursor of the next page, or {@code null} if this is the last page.
+     */
+    public String getNextCursor(){
+        return this.pagination != null && this.pagination.hasNextPage ? this.pagination.endCursor : null;
+    }
+
+    /**
+     * Pagination information of a {@link Page}.
+     */
+    public static class PageInfo {
+        /**
+         * The cursor of the first resource on the page.
+         */
+        public String startCursor;
+
+        /**
+         * The cursor of the last resource on the page, passed as {@code cursor} to request the next page.
+         */
+        public String endCursor;
+
+        /**
+         * Describes whether there are resources after this page.
+         */
+        public boolean hasNextPage;
+
+        /**
+         * Describes whether there are resources before this page.
+         */
+        public boolean hasPreviousPage;
+    }
+}
@@ -0,0 +1,97 @@
+package open_payments.api;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * Iterates over every resource of a cursor-paginated list, requesting pages as they are needed.
+ *
+ * <p>While one page is being consumed the next one is already being fetched, so a consumer that keeps up with the
+ * network never waits for more than the first page. At most two pages are held at a time, however long the list is.
+ * The iterator is not thread-safe. {@link #close()} abandons a page still being fetched.</p>
+ *
+ * @param <T> The type of the listed resources.
+ */
+public class PageIterator<T> implements Iterator<T>, AutoCloseable {
+    private final Function<String, CompletableFuture<Page<T>>> fetcher;
+    private Iterator<T> current = Collections.emptyIterator();
+    private CompletableFuture<Page<T>> next;
+    private int pageCount;
+
+    /**
+     * @param fetcher Requests the page at a cursor, or the first page for a {@code null} cursor.
+     */
+    public PageIterator(Function<String, CompletableFuture<Page<T>>> fetcher){
+        this.fetcher = fetcher;
+        this.next = fetcher.apply(null);
+    }
+
+    /**
+     * @throws OpenPaymentsException If a page could not be fetched.
+     */
+    @Override
+    public boolean hasNext(){
+        while(!this.current.hasNext()){
+            if(this.next == null){
+                return false;
+            }
+            Page<T> page = join(this.next);
+            this.pageCount++;
+            String cursor = page.getNextCursor();
+            // prefetch before handing out the page, so the request overlaps with consuming it
+            this.next = cursor == null ? null : this.fetcher.apply(cursor);
+            this.current = page.getResult().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next(){
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    /**
+     * @return The number of pages received so far.
+     */
+    public int getPageCount(){
+        return this.pageCount;
+    }
+
+    /**
+     * @return The remaining resources as a sequential stream that closes this iterator when it is closed.
+     */
+    public Stream<T> stream(){
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(this::close);
+    }
+
+    @Override
+    public void close(){
+        CompletableFuture<Page<T>> pending = this.next;
+        this.next = null;
+        this.current = Collections.emptyIterator();
+        if(pending != null){
+            pending.cancel(false);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future){
+        try{
+            return future.join();
+        }catch(CompletionException e){
+            throw OpenPaymentsException.wrap(null, e.getCause() != null ? e.getCause() : e);
+        }
+    }
+}
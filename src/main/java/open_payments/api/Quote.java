@@ -40,4 +40,36 @@ public class Quote {
      * The date and time when the quote was created.
      */
     String createdAt;
+
+    public String getId(){
+        return this.id;
+    }
+
+    public String getWalletAddress(){
+        return this.walletAddress;
+    }
+
+    public String getReceiver(){
+        return this.receiver;
+    }
+
+    public Amount getReceiveAmount(){
+        return this.receiveAmount;
+    }
+
+    public Amount getDebitAmount(){
+        return this.debitAmount;
+    }
+
+    public String getMethod(){
+        return this.method;
+    }
+
+    public String getExpiresAt(){
+        return this.expiresAt;
+    }
+
+    public String getCreatedAt(){
+        return this.createdAt;
+    }
 }
@@ -0,0 +1,118 @@
+package open_payments.cache;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import open_payments.api.Grant;
+import open_payments.api.Limit;
+
+/**
+ * Shares one outgoing payment grant between many payments, tracking each grant's spend in a {@link GrantBudget}, and
+ * moves on to a new grant once the current one is used up.
+ *
+ * <p>Budgets are keyed like the grants of a {@link TokenStore}, so one ledger can be shared by the clients of many
+ * wallet addresses and keys. {@link #reserve} reserves a payment's amounts against the stored grant for its key. When
+ * they no longer fit, because the budget or the last interval has run out or the token has expired, the grant is
+ * dropped and a new one requested; concurrent payments that find the grant used up share that single request, which
+ * may well involve the user.</p>
+ *
+ * <p>A key holds one grant at a time, requested with the limits of the reservation that found it missing.</p>
+ */
+public class BudgetLedger {
+    private final ConcurrentHashMap<TokenStore.Key, CompletableFuture<GrantBudget>> budgets = new ConcurrentHashMap<>();
+    private final LongAdder grants = new LongAdder();
+
+    /**
+     * Reserves a payment's amounts against the grant stored for {@code key}, requesting a new grant if there is none
+     * or the stored one cannot cover them.
+     *
+     * @param key           Identifies the outgoing payment access the grant is for.
+     * @param limit         The limits to request a new grant with.
+     * @param debitAmount   The amount the payment debits, as an unsigned 64-bit integer.
+     * @param receiveAmount The amount the payment delivers as an unsigned 64-bit integer, or 0 if not known.
+     * @param requester     Requests and authorises a grant with {@code limit}. The grant must carry an access token.
+     * @return A future completed with the reservation, or completed exceptionally with an
+     *         {@link IllegalArgumentException} if the amounts exceed {@code limit} itself, or with the requester's error.
+     */
+    public CompletableFuture<GrantBudget.Reservation> reserve(TokenStore.Key key, Limit limit, long debitAmount, long receiveAmount,
+                                                             Supplier<CompletableFuture<Grant>> requester){
+        CompletableFuture<GrantBudget> budget = this.budgets.get(key);
+        boolean requested = false;
+        if(budget == null){
+            CompletableFuture<GrantBudget> request = new CompletableFuture<>();
+            budget = this.budgets.putIfAbsent(key, request);
+            if(budget == null){
+                budget = request;
+                requested = true;
+                request(key, limit, request, requester);
+            }
+        }
+        CompletableFuture<GrantBudget> current = budget;
+        boolean fresh = requested;
+        return current.thenCompose(grantBudget -> {
+            GrantBudget.Reservation reservation = grantBudget.tryReserve(debitAmount, receiveAmount);
+            if(reservation != null){
+                return CompletableFuture.completedFuture(reservation);
+            }
+            if(!grantBudget.covers(debitAmount, receiveAmount)){
+                return CompletableFuture.failedFuture(new IllegalArgumentException("payment of " + Long.toUnsignedString(debitAmount)
+                    + " exceeds the limits of the grant for " + key));
+            }
+            if(fresh && !grantBudget.isUsable()){
+                return CompletableFuture.failedFuture(new IllegalStateException("new grant for " + key + " is already used up"));
+            }
+            // used up, or spent by concurrent payments before this one got to it
+            this.budgets.remove(key, current);
+            return reserve(key, limit, debitAmount, receiveAmount, requester);
+        });
+    }
+
+    /**
+     * Drops the grant stored for {@code key}, so that the next reservation requests a new one.
+     */
+    public void invalidate(TokenStore.Key key){
+        CompletableFuture<GrantBudget> budget = this.budgets.remove(key);
+        if(budget != null){
+            budget.thenAccept(GrantBudget::invalidate);
+        }
+    }
+
+    /**
+     * @return The number of keys holding a grant or waiting for one.
+     */
+    public int size(){
+        return this.budgets.size();
+    }
+
+    /**
+     * @return The number of grants requested, including failed requests.
+     */
+    public long getGrantCount(){
+        return this.grants.sum();
+    }
+
+    private void request(TokenStore.Key key, Limit limit, CompletableFuture<GrantBudget> request,
+                         Supplier<CompletableFuture<Grant>> requester){
+        this.grants.increment();
+        CompletableFuture<Grant> requesting;
+        try{
+            requesting = requester.get();
+        }catch(RuntimeException e){
+            requesting = CompletableFuture.failedFuture(e);
+        }
+        requesting.whenComplete((grant, error) -> {
+            if(error == null && (grant == null || grant.access_token == null)){
+                error = new IllegalStateException("grant for " + key + " carries no access token");
+            }
+            if(error != null){
+                // let the next payment request a grant again
+                this.budgets.remove(key, request);
+                request.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }else{
+                request.complete(new GrantBudget(grant, limit));
+            }
+        });
+    }
+}
@@ -0,0 +1,236 @@
+package open_payments.cache;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import open_payments.api.Amount;
+import open_payments.api.Grant;
+import open_payments.api.Limit;
+
+/**
+ * Tracks the amounts spent under one outgoing payment grant against the grant's {@link Limit}, without locks.
+ *
+ * <p>The amounts debited and received in the current interval are held in two atomic counters, which
+ * {@link #tryReserve(long, long)} raises with a compare-and-set loop; a reservation that would take a counter over its
+ * limit fails instead, so any number of threads can pay under one grant without overspending it. When the limit's
+ * repeating interval moves on, the next reservation swaps in fresh counters. A payment that fails
+ * {@linkplain Reservation#release() releases} its reservation.</p>
+ *
+ * <p>An interval that is not of the form {@code R[n]/start/duration} is treated as if the limits applied to the grant
+ * as a whole, so the budget is never refilled early. The budget only sees the payments reserved through it: spending
+ * under the same grant elsewhere, or fees the server counts against the limits, may still get a payment rejected.</p>
+ */
+public class GrantBudget {
+    // the largest unsigned value, which no sum of amounts exceeds
+    private static final long UNLIMITED = -1L;
+    private static final AtomicIntegerFieldUpdater<Reservation> RELEASED =
+        AtomicIntegerFieldUpdater.newUpdater(Reservation.class, "released");
+
+    private final Grant grant;
+    private final Limit limit;
+    private final long debitLimit;
+    private final long receiveLimit;
+    private final RepeatingInterval interval;
+    private final long expiresAtNanos;
+    private final AtomicReference<Window> window;
+    private volatile boolean exhausted;
+
+    /**
+     * @param grant A grant carrying an access token.
+     * @param limit The limits the grant was requested with, or {@code null} if it has none.
+     */
+    public GrantBudget(Grant grant, Limit limit){
+        this.grant = grant;
+        this.limit = limit;
+        this.debitLimit = limit == null || limit.getDebitAmount() == null ? UNLIMITED : limit.getDebitAmount().getValue();
+        this.receiveLimit = limit == null || limit.getReceiveAmount() == null ? UNLIMITED : limit.getReceiveAmount().getValue();
+        this.interval = limit == null || limit.getInterval() == null ? null : RepeatingInterval.parse(limit.getInterval());
+        this.expiresAtNanos = grant.access_token != null && grant.access_token.expires_in > 0
+            ? System.nanoTime() + TimeUnit.SECONDS.toNanos(grant.access_token.expires_in)
+            : Long.MAX_VALUE;
+
+        Window first = new Window(0, Long.MAX_VALUE);
+        if(this.interval != null){
+            Instant now = Instant.now();
+            long index = this.interval.indexAt(now, 0);
+            if(index < 0){
+                this.exhausted = true;
+            }else{
+                first = new Window(index, this.interval.end(index).toEpochMilli());
+            }
+        }
+        this.window = new AtomicReference<>(first);
+    }
+
+    /**
+     * Reserves a payment's amounts against the limits of the current interval.
+     *
+     * @param debitAmount   The amount the payment debits, as an unsigned 64-bit integer in the limit's debit asset.
+     * @param receiveAmount The amount the payment delivers, as an unsigned 64-bit integer in the limit's receive
+     *                      asset, or 0 if it is not known in advance.
+     * @return The reservation, or {@code null} if the grant has expired or the amounts do not fit in what is left.
+     */
+    public Reservation tryReserve(long debitAmount, long receiveAmount){
+        if(!isUsable()){
+            return null;
+        }
+        Window window = currentWindow();
+        if(window == null){
+            return null;
+        }
+        if(!reserve(window.debitSpent, debitAmount, this.debitLimit)){
+            return null;
+        }
+        if(!reserve(window.receiveSpent, receiveAmount, this.receiveLimit)){
+            unreserve(window.debitSpent, debitAmount);
+            return null;
+        }
+        return new Reservation(window, debitAmount, receiveAmount);
+    }
+
+    /**
+     * @return Whether a payment of these amounts fits within the limits at all, however much of them is left.
+     */
+    public boolean covers(long debitAmount, long receiveAmount){
+        return Long.compareUnsigned(debitAmount, this.debitLimit) <= 0 && Long.compareUnsigned(receiveAmount, this.receiveLimit) <= 0;
+    }
+
+    /**
+     * Stops reservations against this grant, e.g. after the server rejected a payment made under it.
+     */
+    public void invalidate(){
+        this.exhausted = true;
+    }
+
+    /**
+     * @return Whether the grant may still be paid under: it has not expired, been invalidated or run out of intervals.
+     */
+    public boolean isUsable(){
+        return !this.exhausted && (this.expiresAtNanos == Long.MAX_VALUE || this.expiresAtNanos - System.nanoTime() > 0);
+    }
+
+    public Grant getGrant(){
+        return this.grant;
+    }
+
+    public Limit getLimit(){
+        return this.limit;
+    }
+
+    /**
+     * @return The amount reserved against the debit limit in the current interval, as an unsigned 64-bit integer.
+     */
+    public long getDebitSpent(){
+        return this.window.get().debitSpent.get();
+    }
+
+    /**
+     * @return The amount reserved against the receive limit in the current interval, as an unsigned 64-bit integer.
+     */
+    public long getReceiveSpent(){
+        return this.window.get().receiveSpent.get();
+    }
+
+    private Window currentWindow(){
+        Window window = this.window.get();
+        if(this.interval == null){
+            return window;
+        }
+        long now = System.currentTimeMillis();
+        while(now >= window.endMillis){
+            long index = this.interval.indexAt(Instant.ofEpochMilli(now), window.index + 1);
+            if(index < 0){
+                this.exhausted = true;
+                return null;
+            }
+            Window next = new Window(index, this.interval.end(index).toEpochMilli());
+            // whoever loses the race uses the window the winner installed
+            if(this.window.compareAndSet(window, next)){
+                return next;
+            }
+            window = this.window.get();
+        }
+        return window;
+    }
+
+    private static boolean reserve(AtomicLong spent, long amount, long limit){
+        if(amount == 0){
+            return true;
+        }
+        while(true){
+            long current = spent.get();
+            if(Long.compareUnsigned(amount, Amount.subtract(limit, current)) > 0){
+                return false;
+            }
+            if(spent.compareAndSet(current, Amount.add(current, amount))){
+                return true;
+            }
+        }
+    }
+
+    private static void unreserve(AtomicLong spent, long amount){
+        if(amount != 0){
+            spent.addAndGet(-amount);
+        }
+    }
+
+    private static final class Window {
+        final long index;
+        final long endMillis;
+        final AtomicLong debitSpent = new AtomicLong();
+        final AtomicLong receiveSpent = new AtomicLong();
+
+        Window(long index, long endMillis){
+            this.index = index;
+            this.endMillis = endMillis;
+        }
+    }
+
+    /**
+     * Amounts reserved for one payment under a {@link GrantBudget}.
+     */
+    public final class Reservation {
+        private final Window window;
+        private final long debitAmount;
+        private final long receiveAmount;
+        private volatile int released;
+
+        private Reservation(Window window, long debitAmount, long receiveAmount){
+            this.window = window;
+            this.debitAmount = debitAmount;
+            this.receiveAmount = receiveAmount;
+        }
+
+        /**
+         * @return The grant to create the payment with.
+         */
+        public Grant getGrant(){
+            return GrantBudget.this.grant;
+        }
+
+        public GrantBudget getBudget(){
+            return GrantBudget.this;
+        }
+
+        public long getDebitAmount(){
+            return this.debitAmount;
+        }
+
+        public long getReceiveAmount(){
+            return this.receiveAmount;
+        }
+
+        /**
+         * Returns the reserved amounts to the interval they were reserved in, after the payment failed. Calling it
+         * again has no effect, and neither does releasing into an interval that is over.
+         */
+        public void release(){
+            if(RELEASED.compareAndSet(this, 0, 1)){
+                unreserve(this.window.debitSpent, this.debitAmount);
+                unreserve(this.window.receiveSpent, this.receiveAmount);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package open_payments.cache;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import open_payments.http_requests.CircuitOpenException;
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * Records payment-creating requests by idempotency key, so that repeating a call with the same key never creates a
+ * second payment.
+ *
+ * <p>The key identifies one logical call, chosen by the caller and reused when the caller repeats that call; it is
+ * sent in the {@code Idempotency-Key} header. Requests are never matched by content, so two calls with identical
+ * bodies but different keys are two payments. A repeat of a call that is still in flight joins it, and a repeat of a
+ * call that succeeded returns the recorded result without contacting the server. A call the server rejected with a
+ * client error was not carried out and is sent again.</p>
+ *
+ * <p>A call whose outcome is unknown, because it timed out or the server answered with a 5xx, may have created the
+ * payment. The Open Payments API does not define {@code Idempotency-Key}, so by default a repeat returns the recorded
+ * failure rather than risk a second payment; check whether the payment exists, then {@link #invalidate} the key to
+ * send it again. Only if the resource server is known to deduplicate on the header should the ledger be created
+ * with {@code serverDeduplicates}, which sends such repeats again under the same key.</p>
+ *
+ * <p>Completed entries are kept for the retention period. When the ledger is full the least recently used completed
+ * entry is evicted; requests in flight are never evicted.</p>
+ */
+public class IdempotencyLedger {
+    /** The header carrying the idempotency key. */
+    public static final String HEADER = "idempotency-key";
+
+    private final int maximumSize;
+    private final long retentionNanos;
+    private final boolean serverDeduplicates;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Creates a ledger remembering up to 10,000 requests for 24 hours.
+     */
+    public IdempotencyLedger(){
+        this(10_000, Duration.ofHours(24));
+    }
+
+    /**
+     * @param maximumSize The maximum number of completed requests remembered at once.
+     * @param retention   How long a completed request is remembered.
+     */
+    public IdempotencyLedger(int maximumSize, Duration retention){
+        this(maximumSize, retention, false);
+    }
+
+    /**
+     * @param maximumSize        The maximum number of completed requests remembered at once.
+     * @param retention          How long a completed request is remembered.
+     * @param serverDeduplicates Whether the resource server recognises a repeated {@code Idempotency-Key}, so that a
+     *                           call with an unknown outcome may be sent again under the same key.
+     */
+    public IdempotencyLedger(int maximumSize, Duration retention, boolean serverDeduplicates){
+        if(maximumSize < 1){
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        this.retentionNanos = retention.toNanos();
+        this.serverDeduplicates = serverDeduplicates;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest){
+                return size() > IdempotencyLedger.this.maximumSize && eldest.getValue().result.isDone();
+            }
+        };
+    }
+
+    /**
+     * @return A digest of a request's method, URL and body, used to detect a key reused for a different request.
+     */
+    public static String fingerprint(String method, String url, byte[] body){
+        return fingerprint(null, method, url, body);
+    }
+
+    /**
+     * @param client Identifies the client sending the request, e.g. its wallet address and key ID, so that a ledger
+     *               shared by many clients keeps their requests apart; {@code null} if the ledger is not shared.
+     * @return A digest of a request's client, method, URL and body.
+     */
+    public static String fingerprint(String client, String method, String url, byte[] body){
+        try{
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if(client != null){
+                digest.update(client.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            digest.update(method.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(url.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            if(body != null){
+                digest.update(body);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return A new random idempotency key, for a call the caller does not intend to repeat.
+     */
+    public static String newKey(){
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Sends the call identified by {@code idempotencyKey} unless the ledger already has its result.
+     *
+     * @param client         Identifies the client making the call, so that clients sharing the ledger may use the same
+     *                       keys; {@code null} if the ledger is not shared.
+     * @param idempotencyKey Identifies the logical call, the same for every repeat of it.
+     * @param fingerprint    The digest of the request, see {@link #fingerprint(String, String, String, byte[])}.
+     * @param send           Sends the request with the given idempotency key. Not called if the call is in flight,
+     *                       has already succeeded, or has an unknown outcome the server cannot deduplicate.
+     * @return A future completed with the call's result, which may be the recorded result of an earlier send, or
+     *         completed exceptionally with an {@link IllegalArgumentException} if {@code idempotencyKey} was used for a
+     *         different request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String client, String idempotencyKey, String fingerprint,
+                                            Function<String, CompletableFuture<T>> send){
+        String id = client == null ? idempotencyKey : client + " " + idempotencyKey;
+        Entry entry;
+        synchronized(this){
+            Entry existing = lookup(id);
+            if(existing != null){
+                if(!existing.fingerprint.equals(fingerprint)){
+                    return CompletableFuture.failedFuture(new IllegalArgumentException("idempotency key " + idempotencyKey
+                        + " was used for a different request"));
+                }
+                if(!existing.result.isDone()){
+                    this.coalesced.increment();
+                    return (CompletableFuture<T>) existing.result.copy();
+                }
+                if(!existing.result.isCompletedExceptionally() || (!existing.rejected && !this.serverDeduplicates)){
+                    // a success, or an unknown outcome that sending again could turn into a second payment
+                    this.replayed.increment();
+                    return (CompletableFuture<T>) existing.result.copy();
+                }
+            }
+            entry = new Entry(fingerprint);
+            this.entries.put(id, entry);
+        }
+        this.sent.increment();
+
+        CompletableFuture<T> sending;
+        try{
+            sending = send.apply(idempotencyKey);
+        }catch(RuntimeException e){
+            sending = CompletableFuture.failedFuture(e);
+        }
+        sending.whenComplete((value, failure) -> {
+            Throwable error = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            synchronized(this){
+                entry.completedAtNanos = System.nanoTime();
+                entry.rejected = error != null && isRejected(error);
+            }
+            if(error == null){
+                entry.result.complete(value);
+            }else{
+                entry.result.completeExceptionally(error);
+            }
+        });
+        return (CompletableFuture<T>) entry.result.copy();
+    }
+
+    /**
+     * @return Whether the ledger holds a call for {@code idempotencyKey}, in flight or completed.
+     */
+    public synchronized boolean contains(String client, String idempotencyKey){
+        return lookup(client == null ? idempotencyKey : client + " " + idempotencyKey) != null;
+    }
+
+    /**
+     * Forgets a call, so that it is sent again next time, e.g. once a call with an unknown outcome turned out not to
+     * have created the payment.
+     */
+    public synchronized void invalidate(String client, String idempotencyKey){
+        this.entries.remove(client == null ? idempotencyKey : client + " " + idempotencyKey);
+    }
+
+    public synchronized int size(){
+        return this.entries.size();
+    }
+
+    /** @return The number of requests sent, including repeats of calls the server rejected. */
+    public long getSentCount(){
+        return this.sent.sum();
+    }
+
+    /** @return The number of repeats answered with a recorded result, a success or an unknown outcome. */
+    public long getReplayCount(){
+        return this.replayed.sum();
+    }
+
+    /** @return The number of repeats that joined a request still in flight. */
+    public long getCoalescedCount(){
+        return this.coalesced.sum();
+    }
+
+    private Entry lookup(String id){
+        Entry entry = this.entries.get(id);
+        if(entry != null && entry.result.isDone() && System.nanoTime() - entry.completedAtNanos > this.retentionNanos){
+            this.entries.remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return {@code true} if the request certainly was not carried out: it was never sent, or the server refused it
+     *         with a client error other than a timeout, conflict or rate limit.
+     */
+    private static boolean isRejected(Throwable error){
+        if(error instanceof CircuitOpenException){
+            return true;
+        }
+        if(!(error instanceof OpenPaymentsException)){
+            return false;
+        }
+        int status = ((OpenPaymentsException) error).getStatusCode();
+        return status >= 400 && status < 500 && status != 408 && status != 409 && status != 425 && status != 429;
+    }
+
+    private static class Entry {
+        final String fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        long completedAtNanos;
+        boolean rejected;
+
+        Entry(String fingerprint){
+            this.fingerprint = fingerprint;
+        }
+    }
+}
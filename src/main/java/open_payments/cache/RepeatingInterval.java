@@ -0,0 +1,77 @@
+package open_payments.cache;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * An ISO 8601 repeating interval of the form {@code R[n]/start/duration}, as used by the {@code interval} of grant
+ * limits, e.g. {@code R/2024-01-01T00:00:00Z/P1D} for every day from the first of January 2024.
+ */
+final class RepeatingInterval {
+    private final Instant start;
+    private final Period period;
+    private final Duration duration;
+    private final long repetitions;
+
+    private RepeatingInterval(Instant start, Period period, Duration duration, long repetitions){
+        this.start = start;
+        this.period = period;
+        this.duration = duration;
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * @return The interval, or {@code null} if {@code interval} is not of the form {@code R[n]/start/duration}.
+     */
+    static RepeatingInterval parse(String interval){
+        String[] parts = interval.split("/");
+        if(parts.length != 3 || !parts[0].startsWith("R")){
+            return null;
+        }
+        try{
+            // R without a count repeats forever
+            long repetitions = parts[0].length() == 1 ? -1 : Long.parseLong(parts[0].substring(1));
+            Instant start = Instant.parse(parts[1]);
+            if(parts[2].contains("T")){
+                Duration duration = Duration.parse(parts[2]);
+                return duration.isNegative() || duration.isZero() ? null : new RepeatingInterval(start, null, duration, repetitions);
+            }
+            Period period = Period.parse(parts[2]);
+            return period.isNegative() || period.isZero() ? null : new RepeatingInterval(start, period, null, repetitions);
+        }catch(DateTimeParseException | NumberFormatException e){
+            return null;
+        }
+    }
+
+    /**
+     * @param hint An index at or before the one wanted, to walk calendar periods from.
+     * @return The index of the repetition {@code now} falls in, 0 if it is before the start, or -1 if it is after the
+     *         last repetition.
+     */
+    long indexAt(Instant now, long hint){
+        long index;
+        if(now.isBefore(this.start)){
+            index = 0;
+        }else if(this.duration != null){
+            index = Duration.between(this.start, now).dividedBy(this.duration);
+        }else{
+            index = Math.max(0, hint);
+            while(!now.isBefore(end(index))){
+                index++;
+            }
+        }
+        return this.repetitions >= 0 && index >= this.repetitions ? -1 : index;
+    }
+
+    /**
+     * @return The instant repetition {@code index} ends at.
+     */
+    Instant end(long index){
+        if(this.duration != null){
+            return this.start.plus(this.duration.multipliedBy(index + 1));
+        }
+        return this.start.atOffset(ZoneOffset.UTC).plus(this.period.multipliedBy(Math.toIntExact(index + 1))).toInstant();
+    }
+}
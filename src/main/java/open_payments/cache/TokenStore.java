@@ -0,0 +1,306 @@
+package open_payments.cache;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import open_payments.api.Grant;
+
+/**
+ * Keeps granted access tokens so that they can be reused until they expire instead of requesting a new grant for
+ * every quote or incoming payment.
+ *
+ * <p>Grants are keyed by client, auth server, access type, actions and identifier, so one store can be shared by the
+ * clients of many wallet addresses and keys. A token with an {@code expires_in} is
+ * rotated through its {@code manage} URL in the background shortly before it expires. The rotated token is stored in a
+ * new {@link Grant}, so a grant once returned never changes; callers that keep one past its token's lifetime should
+ * {@link #get} it again. A token is not handed out during the last moments of its lifetime, so that requests made with
+ * it are not rejected on arrival. Concurrent requests for a grant that is not stored yet share a single grant
+ * request.</p>
+ *
+ * <p>Only grants that carry an access token are stored, grants that still need interaction are passed through.</p>
+ */
+public class TokenStore implements AutoCloseable {
+    // the most a token's lifetime is cut short by, so that requests made with it still arrive in time
+    private static final long VALIDITY_MARGIN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final long refreshMarginNanos;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, CompletableFuture<Grant>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store that rotates tokens 30 seconds before they expire, on its own daemon thread.
+     */
+    public TokenStore(){
+        this(Duration.ofSeconds(30), Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "open-payments-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param refreshMargin How long before expiry a token is rotated.
+     * @param scheduler     The scheduler that runs the rotations. It is not shut down by {@link #close()}.
+     */
+    public TokenStore(Duration refreshMargin, ScheduledExecutorService scheduler){
+        this(refreshMargin, scheduler, false);
+    }
+
+    private TokenStore(Duration refreshMargin, ScheduledExecutorService scheduler, boolean ownsScheduler){
+        this.refreshMarginNanos = refreshMargin.toNanos();
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Returns a stored grant for {@code key} whose token is still valid, requesting one if there is none.
+     *
+     * @param key       Identifies the access the grant is for.
+     * @param requester Requests a new grant. Only called if no valid grant is stored and none is being requested.
+     * @param rotator   Rotates an access token through its {@code manage} URL, used to refresh the token before it expires.
+     * @return A future completed with the grant.
+     */
+    public CompletableFuture<Grant> get(Key key, Supplier<CompletableFuture<Grant>> requester,
+                                        Function<Grant.AccessToken, CompletableFuture<Grant.AccessToken>> rotator){
+        Entry entry = this.entries.get(key);
+        Token token = entry == null ? null : entry.token;
+        if(token != null && token.isValid()){
+            return CompletableFuture.completedFuture(token.grant);
+        }
+
+        CompletableFuture<Grant> request = new CompletableFuture<>();
+        CompletableFuture<Grant> existing = this.inFlight.putIfAbsent(key, request);
+        if(existing != null){
+            return existing.copy();
+        }
+        // a request that completed between the lookup above and joining the in-flight map
+        entry = this.entries.get(key);
+        token = entry == null ? null : entry.token;
+        if(token != null && token.isValid()){
+            this.inFlight.remove(key, request);
+            request.complete(token.grant);
+            return request;
+        }
+
+        CompletableFuture<Grant> requesting;
+        try{
+            requesting = requester.get();
+        }catch(RuntimeException e){
+            requesting = CompletableFuture.failedFuture(e);
+        }
+        requesting.whenComplete((grant, error) -> {
+            try{
+                if(error == null && grant != null && grant.access_token != null){
+                    store(key, grant, rotator);
+                }
+            }finally{
+                // whatever happens to the entry, the callers waiting on the request must not hang
+                this.inFlight.remove(key, request);
+                if(error == null){
+                    request.complete(grant);
+                }else{
+                    request.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                }
+            }
+        });
+        return request.copy();
+    }
+
+    /**
+     * Forgets the grant stored for {@code key}, e.g. after its token was rejected.
+     */
+    public void invalidate(Key key){
+        Entry entry = this.entries.remove(key);
+        if(entry != null){
+            entry.cancelRefresh();
+        }
+    }
+
+    public int size(){
+        return this.entries.size();
+    }
+
+    @Override
+    public void close(){
+        this.entries.values().forEach(Entry::cancelRefresh);
+        this.entries.clear();
+        if(this.ownsScheduler){
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    private void store(Key key, Grant grant, Function<Grant.AccessToken, CompletableFuture<Grant.AccessToken>> rotator){
+        Entry entry = new Entry(new Token(grant));
+        Entry previous = this.entries.put(key, entry);
+        if(previous != null){
+            previous.cancelRefresh();
+        }
+        scheduleRefresh(key, entry, rotator);
+    }
+
+    private void scheduleRefresh(Key key, Entry entry, Function<Grant.AccessToken, CompletableFuture<Grant.AccessToken>> rotator){
+        Token token = entry.token;
+        if(token.expiresAtNanos == Long.MAX_VALUE || token.grant.access_token.manage == null){
+            return;
+        }
+        long lifetime = Math.max(0, token.expiresAtNanos - System.nanoTime());
+        // never use more than half of a short-lived token's lifetime as margin, or it would be rotated back to back
+        long delay = lifetime - Math.min(this.refreshMarginNanos, lifetime / 2);
+        try{
+            entry.refresh = this.scheduler.schedule(() -> rotate(key, entry, rotator), delay, TimeUnit.NANOSECONDS);
+        }catch(RejectedExecutionException e){
+            // the scheduler was shut down, e.g. by close(); the token is still used until it expires, just not rotated
+        }
+    }
+
+    private void rotate(Key key, Entry entry, Function<Grant.AccessToken, CompletableFuture<Grant.AccessToken>> rotator){
+        if(this.entries.get(key) != entry){
+            return;
+        }
+        CompletableFuture<Grant.AccessToken> rotation;
+        try{
+            rotation = rotator.apply(entry.token.grant.access_token);
+        }catch(RuntimeException e){
+            rotation = CompletableFuture.failedFuture(e);
+        }
+        rotation.whenComplete((token, error) -> {
+            if(error != null || token == null || token.value == null){
+                // let the next caller request a fresh grant
+                this.entries.remove(key, entry);
+                return;
+            }
+            // publish a new grant rather than change the one callers already hold
+            entry.token = new Token(withAccessToken(entry.token.grant, token));
+            if(this.entries.get(key) == entry){
+                scheduleRefresh(key, entry, rotator);
+            }
+        });
+    }
+
+    private static Grant withAccessToken(Grant grant, Grant.AccessToken accessToken){
+        Grant rotated = new Grant();
+        rotated.interact = grant.interact;
+        rotated.continuation = grant.continuation;
+        rotated.access_token = accessToken;
+        return rotated;
+    }
+
+    /**
+     * Identifies the access a stored grant was issued for.
+     */
+    public static final class Key {
+        final String client;
+        final String authServer;
+        final String type;
+        final String[] actions;
+        final String identifier;
+
+        /**
+         * Creates a key for a store used by a single client.
+         *
+         * @param authServer The auth server the grant is requested from.
+         * @param type       The access type, e.g. {@code quote} or {@code incoming-payment}.
+         * @param actions    The granted actions; their order does not matter.
+         * @param identifier The resource identifier the access is limited to, or {@code null}.
+         */
+        public Key(String authServer, String type, String[] actions, String identifier){
+            this(null, authServer, type, actions, identifier);
+        }
+
+        /**
+         * @param client     Identifies the client the grant was issued to, e.g. its wallet address and key ID, since
+         *                   tokens are bound to the client's key; {@code null} if the store is not shared.
+         * @param authServer The auth server the grant is requested from.
+         * @param type       The access type, e.g. {@code quote} or {@code incoming-payment}.
+         * @param actions    The granted actions; their order does not matter.
+         * @param identifier The resource identifier the access is limited to, or {@code null}.
+         */
+        public Key(String client, String authServer, String type, String[] actions, String identifier){
+            this.client = client;
+            this.authServer = authServer;
+            this.type = type;
+            this.actions = actions.clone();
+            Arrays.sort(this.actions);
+            this.identifier = identifier;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(this.client, other.client) && this.authServer.equals(other.authServer) && this.type.equals(other.type)
+                && Arrays.equals(this.actions, other.actions) && Objects.equals(this.identifier, other.identifier);
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(this.client, this.authServer, this.type, Arrays.hashCode(this.actions), this.identifier);
+        }
+
+        @Override
+        public String toString(){
+            return (this.client == null ? "" : this.client + " ") + this.authServer + " " + this.type + Arrays.toString(this.actions) + (this.identifier == null ? "" : " " + this.identifier);
+        }
+    }
+
+    /**
+     * A grant and the expiry of its token, replaced as a whole when the token is rotated.
+     */
+    private static final class Token {
+        final Grant grant;
+        final long expiresAtNanos;
+        final long validUntilNanos;
+
+        Token(Grant grant){
+            this.grant = grant;
+            int expiresIn = grant.access_token.expires_in;
+            if(expiresIn > 0){
+                long lifetime = TimeUnit.SECONDS.toNanos(expiresIn);
+                this.expiresAtNanos = System.nanoTime() + lifetime;
+                // short-lived tokens are refreshed halfway, so stop handing them out at three quarters
+                this.validUntilNanos = this.expiresAtNanos - Math.min(VALIDITY_MARGIN_NANOS, lifetime / 4);
+            }else{
+                // without expires_in the token does not expire by time
+                this.expiresAtNanos = Long.MAX_VALUE;
+                this.validUntilNanos = Long.MAX_VALUE;
+            }
+        }
+
+        boolean isValid(){
+            return this.validUntilNanos == Long.MAX_VALUE || this.validUntilNanos - System.nanoTime() > 0;
+        }
+    }
+
+    private static class Entry {
+        volatile Token token;
+        volatile ScheduledFuture<?> refresh;
+
+        Entry(Token token){
+            this.token = token;
+        }
+
+        void cancelRefresh(){
+            ScheduledFuture<?> refresh = this.refresh;
+            if(refresh != null){
+                refresh.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package open_payments.cache;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import open_payments.api.WalletAddress;
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * A bounded, expiring cache of resolved wallet addresses.
+ *
+ * <p>Entries live for the {@code max-age} of the wallet address server's {@code Cache-Control} header, capped at the
+ * configured TTL, and are not stored at all for {@code no-store} or {@code no-cache}. Lookups the server rejects with a
+ * client error, such as a 404 for a missing wallet address, are cached for a shorter negative TTL so that they are not
+ * requested again on every payment; timeouts and server errors are not cached. Concurrent
+ * lookups of a URL that is not cached share a single request.</p>
+ *
+ * <p>When the cache is full the least recently used entry is evicted.</p>
+ */
+public class WalletAddressCache {
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<WalletAddress>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding up to 10,000 wallet addresses for at most 5 minutes, and failures for 10 seconds.
+     */
+    public WalletAddressCache(){
+        this(10_000, Duration.ofMinutes(5), Duration.ofSeconds(10));
+    }
+
+    /**
+     * @param maximumSize The maximum number of entries, successful or failed, kept at once.
+     * @param ttl         The longest time a wallet address is served from the cache.
+     * @param negativeTtl How long a failed lookup is remembered, {@code Duration.ZERO} to not cache failures.
+     */
+    public WalletAddressCache(int maximumSize, Duration ttl, Duration negativeTtl){
+        if(maximumSize < 1){
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest){
+                if(size() > WalletAddressCache.this.maximumSize){
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached wallet address for {@code url}, loading it if it is not cached or has expired.
+     *
+     * @param url    The wallet address URL.
+     * @param loader Fetches the wallet address. Only called if there is no usable entry and no load of the same URL
+     *               already in flight.
+     * @return A future completed with the wallet address, or completed exceptionally with the (possibly cached) failure.
+     */
+    public CompletableFuture<WalletAddress> get(String url, Function<String, CompletableFuture<Loaded>> loader){
+        Entry entry = lookup(url);
+        if(entry != null){
+            this.hits.increment();
+            return entry.failure == null
+                ? CompletableFuture.completedFuture(entry.walletAddress)
+                : CompletableFuture.failedFuture(entry.failure);
+        }
+        this.misses.increment();
+
+        CompletableFuture<WalletAddress> load = new CompletableFuture<>();
+        CompletableFuture<WalletAddress> existing = this.inFlight.putIfAbsent(url, load);
+        if(existing != null){
+            this.coalesced.increment();
+            return existing.copy();
+        }
+
+        CompletableFuture<Loaded> loading;
+        try{
+            loading = loader.apply(url);
+        }catch(RuntimeException e){
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((loaded, failure) -> {
+            Throwable error = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            try{
+                // store before leaving the in-flight map, so a racing lookup either joins the load or sees the entry
+                if(error == null){
+                    store(url, new Entry(loaded.walletAddress, null, expiresAt(loaded.cacheControl)));
+                }else if(this.negativeTtlNanos > 0 && isPermanent(error)){
+                    store(url, new Entry(null, error, System.nanoTime() + this.negativeTtlNanos));
+                }
+            }finally{
+                // whatever happens to the entry, the callers waiting on the load must not hang
+                this.inFlight.remove(url, load);
+                if(error == null){
+                    load.complete(loaded.walletAddress);
+                }else{
+                    load.completeExceptionally(error);
+                }
+            }
+        });
+        return load.copy();
+    }
+
+    private static boolean isPermanent(Throwable error){
+        if(!(error instanceof OpenPaymentsException)){
+            return false;
+        }
+        int status = ((OpenPaymentsException) error).getStatusCode();
+        return status >= 400 && status < 500 && status != 429;
+    }
+
+    public synchronized void invalidate(String url){
+        this.entries.remove(url);
+    }
+
+    public synchronized void invalidateAll(){
+        this.entries.clear();
+    }
+
+    public synchronized int size(){
+        return this.entries.size();
+    }
+
+    /** @return The number of lookups answered from the cache, including cached failures. */
+    public long getHitCount(){
+        return this.hits.sum();
+    }
+
+    /** @return The number of lookups that were not answered from the cache, including those coalesced into another load. */
+    public long getMissCount(){
+        return this.misses.sum();
+    }
+
+    /** @return The number of misses that joined a load already in flight instead of sending a request. */
+    public long getCoalescedCount(){
+        return this.coalesced.sum();
+    }
+
+    /** @return The number of entries removed to stay within the maximum size. */
+    public long getEvictionCount(){
+        return this.evictions.sum();
+    }
+
+    private synchronized Entry lookup(String url){
+        Entry entry = this.entries.get(url);
+        if(entry != null && entry.expiresAtNanos - System.nanoTime() <= 0){
+            this.entries.remove(url);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void store(String url, Entry entry){
+        if(entry.expiresAtNanos - System.nanoTime() > 0){
+            this.entries.put(url, entry);
+        }else{
+            this.entries.remove(url);
+        }
+    }
+
+    private long expiresAt(String cacheControl){
+        long ttl = this.ttlNanos;
+        if(cacheControl != null){
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.strip().toLowerCase();
+                if(directive.equals("no-store") || directive.equals("no-cache")){
+                    ttl = 0;
+                }else if(directive.startsWith("max-age=")){
+                    try{
+                        // saturates rather than overflows for absurdly large values
+                        long maxAge = TimeUnit.SECONDS.toNanos(Long.parseLong(directive.substring(8).replace("\"", "")));
+                        ttl = Math.min(ttl, Math.max(0, maxAge));
+                    }catch(NumberFormatException e){
+                        // malformed, fall back to the configured TTL
+                    }
+                }
+            }
+        }
+        return System.nanoTime() + ttl;
+    }
+
+    /**
+     * A freshly fetched wallet address together with the {@code Cache-Control} header it was served with.
+     */
+    public static class Loaded {
+        final WalletAddress walletAddress;
+        final String cacheControl;
+
+        /**
+         * @param walletAddress The wallet address.
+         * @param cacheControl  The response's {@code Cache-Control} header, or {@code null} if it had none.
+         */
+        public Loaded(WalletAddress walletAddress, String cacheControl){
+            this.walletAddress = walletAddress;
+            this.cacheControl = cacheControl;
+        }
+    }
+
+    private static class Entry {
+        final WalletAddress walletAddress;
+        final Throwable failure;
+        final long expiresAtNanos;
+
+        Entry(WalletAddress walletAddress, Throwable failure, long expiresAtNanos){
+            this.walletAddress = walletAddress;
+            this.failure = failure;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
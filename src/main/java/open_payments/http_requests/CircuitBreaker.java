@@ -0,0 +1,130 @@
+package open_payments.http_requests;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A circuit breaker per server, so requests to an auth or resource server that keeps failing are rejected straight
+ * away instead of each waiting for a timeout.
+ *
+ * <p>Servers are identified by origin, as in {@link HostConcurrencyLimiter}. After {@code failureThreshold}
+ * consecutive failures a server's circuit opens and requests to it are rejected for {@code openDuration}. The first
+ * request after that is let through as a trial: if it succeeds the circuit closes, otherwise it opens again.</p>
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ConcurrentHashMap<String, HostCircuit> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * @param failureThreshold The number of consecutive failures that opens a server's circuit.
+     * @param openDuration     How long an open circuit rejects requests before letting a trial request through.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration){
+        if(failureThreshold < 1){
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @param url Any URL on the server.
+     * @return {@code true} if a request to the server may be sent now. The caller must report its outcome with
+     *         {@link #onSuccess(String)} or {@link #onFailure(String)}.
+     */
+    public boolean tryAcquire(String url){
+        return circuitFor(url).tryAcquire();
+    }
+
+    public void onSuccess(String url){
+        circuitFor(url).onSuccess();
+    }
+
+    public void onFailure(String url){
+        circuitFor(url).onFailure();
+    }
+
+    /**
+     * @param url Any URL on the server.
+     * @return The state of the server's circuit.
+     */
+    public State getState(String url){
+        HostCircuit circuit = this.hosts.get(HostConcurrencyLimiter.origin(url));
+        return circuit == null ? State.CLOSED : circuit.state();
+    }
+
+    /**
+     * @return The state of every circuit, keyed by server origin.
+     */
+    public Map<String, State> getStates(){
+        TreeMap<String, State> states = new TreeMap<>();
+        this.hosts.forEach((host, circuit) -> states.put(host, circuit.state()));
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * Closes the server's circuit, e.g. once it is known to have recovered.
+     */
+    public void reset(String url){
+        this.hosts.remove(HostConcurrencyLimiter.origin(url));
+    }
+
+    private HostCircuit circuitFor(String url){
+        return this.hosts.computeIfAbsent(HostConcurrencyLimiter.origin(url), host -> new HostCircuit());
+    }
+
+    private class HostCircuit {
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean trialInFlight;
+
+        synchronized State state(){
+            return this.state;
+        }
+
+        synchronized boolean tryAcquire(){
+            switch(this.state){
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if(System.nanoTime() - this.openedAt < openNanos){
+                        return false;
+                    }
+                    this.state = State.HALF_OPEN;
+                    this.trialInFlight = true;
+                    return true;
+                default:
+                    if(this.trialInFlight){
+                        return false;
+                    }
+                    this.trialInFlight = true;
+                    return true;
+            }
+        }
+
+        synchronized void onSuccess(){
+            this.state = State.CLOSED;
+            this.consecutiveFailures = 0;
+            this.trialInFlight = false;
+        }
+
+        synchronized void onFailure(){
+            this.consecutiveFailures++;
+            if(this.state == State.HALF_OPEN || this.consecutiveFailures >= failureThreshold){
+                this.state = State.OPEN;
+                this.openedAt = System.nanoTime();
+                this.trialInFlight = false;
+            }
+        }
+    }
+}
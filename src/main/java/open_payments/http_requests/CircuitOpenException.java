@@ -0,0 +1,13 @@
+package open_payments.http_requests;
+
+/**
+ * Thrown without sending a request when the {@link CircuitBreaker} for the server it is addressed to is open.
+ */
+public class CircuitOpenException extends OpenPaymentsException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(Request request, String origin){
+        super(String.format("%s %s rejected: circuit open for %s", request.getMethod(), request.getUrl(), origin),
+            NO_STATUS, request, null, null, null, null);
+    }
+}
@@ -0,0 +1,54 @@
+package open_payments.http_requests;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link HttpTransport} decorator that holds a {@link HostConcurrencyLimiter} permit for the server a request is
+ * addressed to for as long as the request is in flight.
+ */
+public class ConcurrencyLimitedTransport implements HttpTransport {
+    private final HttpTransport delegate;
+    private final HostConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedTransport(HttpTransport delegate, HostConcurrencyLimiter limiter){
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    public HostConcurrencyLimiter getLimiter(){
+        return this.limiter;
+    }
+
+    @Override
+    public Response send(Request request) throws Exception {
+        String url = request.getUrl();
+        CompletableFuture<Void> permit = this.limiter.acquire(url);
+        try{
+            permit.get();
+        }catch(Exception e){
+            // interrupted while queued: give up the place in the queue, or the permit if it was granted meanwhile
+            if(!permit.cancel(false)){
+                this.limiter.release(url);
+            }
+            throw e;
+        }
+        try{
+            return this.delegate.send(request);
+        }finally{
+            this.limiter.release(url);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request){
+        String url = request.getUrl();
+        return this.limiter.acquire(url).thenCompose(permit -> {
+            CompletableFuture<Response> response;
+            try{
+                response = this.delegate.sendAsync(request);
+            }catch(RuntimeException e){
+                response = CompletableFuture.failedFuture(e);
+            }
+            return response.whenComplete((res, error) -> this.limiter.release(url));
+        });
+    }
+}
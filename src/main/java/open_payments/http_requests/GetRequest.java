@@ -1,52 +1,50 @@
 package open_payments.http_requests;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
-public class GetRequest {
-    String urlString;
-    HashMap<String,String> headers;
+public class GetRequest extends Request {
     String response;
 
     public GetRequest(String urlString, HashMap<String, String> headers){
-        this.urlString = urlString;
-        this.headers = headers;
+        super("GET", urlString, headers);
     }
 
     public String getResponse(){
         return this.response;
     }
-    public void send() throws Exception {
-        // Prepare the URL
-        URL url = new URL(this.urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
 
-        // Set headers
-        for (String header : headers.keySet()) {
-            connection.setRequestProperty(header, headers.get(header));
-        }
+    @Override
+    public byte[] getBodyBytes(){
+        return null;
+    }
 
-        // Get the response code
-        int responseCode = connection.getResponseCode();
+    public void send(HttpTransport transport) throws Exception {
+        handleResponse(transport.send(this));
+    }
 
-        // Read the response
-        if (responseCode == HttpURLConnection.HTTP_OK) { // success
-            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            String inputLine;
-            StringBuffer responseBuffer = new StringBuffer();
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param transport The transport to send the request through.
+     * @return A future completed with the response body, or completed exceptionally if the request failed.
+     */
+    public CompletableFuture<String> sendAsync(HttpTransport transport){
+        return execute(transport).thenApply(this::handleResponse);
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                responseBuffer.append(inputLine);
-            }
-            in.close();
-            this.response = responseBuffer.toString();
+    private String handleResponse(Response res){
+        this.response = null;
+        checkStatus(res);
+        this.response = res.getBodyAsString();
+        return this.response;
+    }
 
-        } else {
-            this.response = null;
-            throw new Exception("GET Request failed " + responseCode);
+    @Override
+    void checkStatus(Response res){
+        int responseCode = res.getStatusCode();
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            throw OpenPaymentsException.fromResponse(this, res);
         }
     }
 
@@ -56,4 +54,3 @@ public class GetRequest {
         return String.format(s, this.urlString, this.headers.toString());
     }
 }
-
@@ -0,0 +1,180 @@
+package open_payments.http_requests;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of requests in flight to each server, so that one slow auth or resource server cannot use up
+ * all of the client's concurrency.
+ *
+ * <p>Servers are identified by the origin ({@code scheme://host:port}) of their URL, so the limit set for a wallet
+ * address's {@code resourceServer} or {@code authServer} applies to every request sent to that server. Requests over
+ * the limit are queued without blocking a thread and started in arrival order as permits are released.</p>
+ */
+public class HostConcurrencyLimiter {
+    private final int defaultLimit;
+    private final ConcurrentHashMap<String, HostPermits> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultLimit The maximum number of concurrent requests to a server without an explicit limit.
+     */
+    public HostConcurrencyLimiter(int defaultLimit){
+        if(defaultLimit < 1){
+            throw new IllegalArgumentException("defaultLimit must be at least 1");
+        }
+        this.defaultLimit = defaultLimit;
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests to a server. Lowering the limit lets requests already in flight
+     * finish, new requests are only started once the server is back under the new limit.
+     *
+     * @param serverUrl Any URL on the server, typically {@code WalletAddress.resourceServer} or {@code WalletAddress.authServer}.
+     * @param limit     The maximum number of concurrent requests.
+     */
+    public void setLimit(String serverUrl, int limit){
+        if(limit < 1){
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        permitsFor(serverUrl).resize(limit);
+    }
+
+    public int getDefaultLimit(){
+        return this.defaultLimit;
+    }
+
+    /**
+     * @param serverUrl Any URL on the server.
+     * @return The maximum number of concurrent requests to the server.
+     */
+    public int getLimit(String serverUrl){
+        HostPermits permits = this.hosts.get(origin(serverUrl));
+        return permits == null ? this.defaultLimit : permits.limit;
+    }
+
+    /**
+     * @param serverUrl Any URL on the server.
+     * @return The number of requests to the server currently in flight.
+     */
+    public int getInFlight(String serverUrl){
+        HostPermits permits = this.hosts.get(origin(serverUrl));
+        return permits == null ? 0 : permits.inFlight();
+    }
+
+    /**
+     * @param serverUrl Any URL on the server.
+     * @return The number of requests to the server waiting for a permit.
+     */
+    public int getQueued(String serverUrl){
+        HostPermits permits = this.hosts.get(origin(serverUrl));
+        return permits == null ? 0 : permits.waiters.size();
+    }
+
+    /**
+     * @return The number of requests currently in flight, keyed by server origin.
+     */
+    public Map<String, Integer> getInFlight(){
+        TreeMap<String, Integer> inFlight = new TreeMap<>();
+        this.hosts.forEach((host, permits) -> inFlight.put(host, permits.inFlight()));
+        return Collections.unmodifiableMap(inFlight);
+    }
+
+    /**
+     * Acquires a permit for the server the request is addressed to.
+     *
+     * @return A future completed once the request may be sent. The caller must {@link #release(String)} the permit
+     *         once the request has finished. Cancelling the future while it is still queued gives up the request's
+     *         place; if {@code cancel} returns {@code false} the permit was already granted and must be released.
+     */
+    public CompletableFuture<Void> acquire(String url){
+        return permitsFor(url).acquire();
+    }
+
+    public void release(String url){
+        this.hosts.get(origin(url)).release();
+    }
+
+    private HostPermits permitsFor(String url){
+        return this.hosts.computeIfAbsent(origin(url), host -> new HostPermits(this.defaultLimit));
+    }
+
+    static String origin(String url){
+        URI uri = URI.create(url);
+        String origin = uri.getScheme() + "://" + uri.getHost();
+        return uri.getPort() == -1 ? origin : origin + ":" + uri.getPort();
+    }
+
+    private static class HostPermits {
+        final ResizableSemaphore semaphore;
+        final ConcurrentLinkedQueue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+        volatile int limit;
+
+        HostPermits(int limit){
+            this.limit = limit;
+            this.semaphore = new ResizableSemaphore(limit);
+        }
+
+        synchronized void resize(int newLimit){
+            int delta = newLimit - this.limit;
+            this.limit = newLimit;
+            if(delta > 0){
+                this.semaphore.release(delta);
+                drain();
+            }else if(delta < 0){
+                this.semaphore.reduce(-delta);
+            }
+        }
+
+        int inFlight(){
+            return Math.max(0, this.limit - this.semaphore.availablePermits());
+        }
+
+        CompletableFuture<Void> acquire(){
+            if(this.waiters.isEmpty() && this.semaphore.tryAcquire()){
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            this.waiters.add(waiter);
+            // a waiter cancelled before its turn leaves the queue; one cancelled too late is handed back by drain
+            waiter.whenComplete((granted, error) -> {
+                if(error != null){
+                    this.waiters.remove(waiter);
+                }
+            });
+            drain();
+            return waiter;
+        }
+
+        void release(){
+            this.semaphore.release();
+            drain();
+        }
+
+        /** Hands free permits to queued requests; re-checks the queue after giving back a permit so no waiter is stranded. */
+        private void drain(){
+            while(!this.waiters.isEmpty() && this.semaphore.tryAcquire()){
+                CompletableFuture<Void> waiter = this.waiters.poll();
+                if(waiter == null || !waiter.complete(null)){
+                    this.semaphore.release();
+                }
+            }
+        }
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits){
+            super(permits);
+        }
+
+        void reduce(int reduction){
+            reducePermits(reduction);
+        }
+    }
+}
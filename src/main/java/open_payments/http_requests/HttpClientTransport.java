@@ -0,0 +1,155 @@
+package open_payments.http_requests;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.net.ssl.SSLSession;
+
+import open_payments.metrics.ConnectionReuse;
+
+/**
+ * The default {@link HttpTransport}, backed by a single {@link java.net.http.HttpClient}.
+ *
+ * <p>The client keeps connections alive between requests and, when HTTP/2 is negotiated, multiplexes concurrent
+ * requests to the same auth or resource server over one connection, so a payment flow only pays for the TCP and TLS
+ * handshakes once per server rather than once per request.</p>
+ */
+public class HttpClientTransport implements HttpTransport {
+    /** Headers the JDK client computes itself and refuses to have set explicitly. */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client;
+    private final TransportConfig config;
+
+    public HttpClientTransport(){
+        this(TransportConfig.defaults());
+    }
+
+    public HttpClientTransport(TransportConfig config){
+        this.config = config;
+        applyProcessWideSettings(config);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(config.httpVersion)
+            .followRedirects(HttpClient.Redirect.NEVER);
+        if(config.connectTimeout != null){
+            builder.connectTimeout(config.connectTimeout);
+        }
+        if(config.executor != null){
+            builder.executor(config.executor);
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * @return A transport shared by every client that is not given one explicitly.
+     */
+    public static HttpClientTransport getDefault(){
+        return DefaultHolder.INSTANCE;
+    }
+
+    public TransportConfig getConfig(){
+        return this.config;
+    }
+
+    @Override
+    public Response send(Request request) throws Exception {
+        HttpRequest httpRequest = toHttpRequest(request);
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try{
+            return toResponse(request, this.client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray()), startMillis, start);
+        }catch(Exception e){
+            recordFailure(request, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request){
+        HttpRequest httpRequest;
+        try{
+            httpRequest = toHttpRequest(request);
+        }catch(RuntimeException e){
+            return CompletableFuture.failedFuture(e);
+        }
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        return this.client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+            .whenComplete((response, error) -> {
+                if(error != null){
+                    recordFailure(request, start);
+                }
+            })
+            .thenApply(response -> toResponse(request, response, startMillis, start));
+    }
+
+    private static Response toResponse(Request request, HttpResponse<byte[]> response, long startMillis, long start){
+        long elapsed = System.nanoTime() - start;
+        ConnectionReuse reuse = connectionReuse(response, startMillis);
+        byte[] sent = request.getBodyBytes();
+        request.getMetrics().exchangeCompleted(request.getOperation(), response.statusCode(), elapsed,
+            sent == null ? 0 : sent.length, response.body() == null ? 0 : response.body().length, reuse);
+        return new Response(response.statusCode(), response.headers().map(), response.body(), reuse);
+    }
+
+    private static void recordFailure(Request request, long start){
+        byte[] sent = request.getBodyBytes();
+        request.getMetrics().exchangeCompleted(request.getOperation(), OpenPaymentsException.NO_STATUS,
+            System.nanoTime() - start, sent == null ? 0 : sent.length, 0, ConnectionReuse.UNKNOWN);
+    }
+
+    /**
+     * The JDK client does not expose its connection pool, so reuse is inferred from the TLS session: a session created
+     * before the request was sent belongs to a connection that was already open. A resumed TLS session on a new
+     * connection is reported as reused, and plain HTTP cannot be told apart at all.
+     */
+    static ConnectionReuse connectionReuse(HttpResponse<?> response, long startMillis){
+        Optional<SSLSession> session = response.sslSession();
+        if(session.isEmpty()){
+            return ConnectionReuse.UNKNOWN;
+        }
+        return session.get().getCreationTime() < startMillis ? ConnectionReuse.REUSED : ConnectionReuse.NEW;
+    }
+
+    HttpRequest toHttpRequest(Request request){
+        byte[] body = request.getBodyBytes();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()));
+        if(body == null && "GET".equals(request.getMethod())){
+            builder.GET();
+        }else{
+            builder.method(request.getMethod(), body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(body));
+        }
+        Duration timeout = request.getTimeout() != null ? request.getTimeout() : this.config.requestTimeout;
+        if(timeout != null){
+            builder.timeout(timeout);
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            // content-length is still covered by the signature, the client sends the same value for a byte array body
+            if(!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())){
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private static void applyProcessWideSettings(TransportConfig config){
+        if(config.connectionPoolSize > 0 && System.getProperty("jdk.httpclient.connectionPoolSize") == null){
+            System.setProperty("jdk.httpclient.connectionPoolSize", Integer.toString(config.connectionPoolSize));
+        }
+        if(config.keepAlive != null && System.getProperty("jdk.httpclient.keepalive.timeout") == null){
+            System.setProperty("jdk.httpclient.keepalive.timeout", Long.toString(config.keepAlive.toSeconds()));
+        }
+    }
+
+    private static class DefaultHolder {
+        static final HttpClientTransport INSTANCE = new HttpClientTransport();
+    }
+}
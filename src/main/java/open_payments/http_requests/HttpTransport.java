@@ -0,0 +1,38 @@
+package open_payments.http_requests;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Executes {@link Request}s on behalf of the client. Implementations are expected to be thread-safe and shared
+ * between clients so that connections to the auth and resource servers are reused.
+ *
+ * @see HttpClientTransport
+ */
+public interface HttpTransport {
+    /**
+     * Sends the request and blocks until the full response has been received.
+     *
+     * @param request The request to send, with all headers (including signatures) already applied.
+     * @return The response, whatever its status code.
+     * @throws Exception If the request could not be sent or the response could not be read.
+     */
+    default Response send(Request request) throws Exception {
+        try{
+            return sendAsync(request).join();
+        }catch(CompletionException e){
+            if(e.getCause() instanceof Exception){
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param request The request to send, with all headers (including signatures) already applied.
+     * @return A future completed with the response, whatever its status code, or completed exceptionally
+     *         if the request could not be sent.
+     */
+    CompletableFuture<Response> sendAsync(Request request);
+}
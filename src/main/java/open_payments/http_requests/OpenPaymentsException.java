@@ -0,0 +1,137 @@
+package open_payments.http_requests;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Thrown when an Open Payments request fails, either because the server answered with an error status or because
+ * no response was received at all.
+ *
+ * <p>For error responses the status code and the {@code error.code} and {@code error.description} fields of the
+ * Open Payments error body are available; for failures without a response {@link #getStatusCode()} returns
+ * {@link #NO_STATUS} and the underlying exception is the {@linkplain #getCause() cause}.</p>
+ */
+public class OpenPaymentsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** The status code reported when no response was received. */
+    public static final int NO_STATUS = -1;
+
+    private final int statusCode;
+    private final String method;
+    private final String url;
+    private final Operation operation;
+    private final String errorCode;
+    private final String errorDescription;
+    private final String body;
+
+    public OpenPaymentsException(String message, int statusCode, Request request, String errorCode, String errorDescription, String body, Throwable cause){
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.method = request == null ? null : request.getMethod();
+        this.url = request == null ? null : request.getUrl();
+        this.operation = request == null ? null : request.getOperation();
+        this.errorCode = errorCode;
+        this.errorDescription = errorDescription;
+        this.body = body;
+    }
+
+    /**
+     * Creates the exception for an error response, parsing the Open Payments error body if there is one.
+     */
+    public static OpenPaymentsException fromResponse(Request request, Response response){
+        String body = response.getBody() == null ? null : new String(response.getBody(), StandardCharsets.UTF_8);
+        String errorCode = null;
+        String errorDescription = null;
+        try{
+            JsonElement json = body == null || body.isEmpty() ? null : JsonParser.parseString(body);
+            if(json != null && json.isJsonObject()){
+                JsonObject root = json.getAsJsonObject();
+                JsonObject error = root.has("error") && root.get("error").isJsonObject() ? root.getAsJsonObject("error") : root;
+                errorCode = stringField(error, "code");
+                errorDescription = stringField(error, "description");
+                if(errorDescription == null){
+                    errorDescription = stringField(error, "message");
+                }
+            }
+        }catch(RuntimeException e){
+            // not JSON, the raw body is still available
+        }
+        String message = String.format("%s %s failed with status %d", request.getMethod(), request.getUrl(), response.getStatusCode());
+        if(errorCode != null || errorDescription != null){
+            message += ": " + (errorCode == null ? errorDescription : errorDescription == null ? errorCode : errorCode + " - " + errorDescription);
+        }
+        return new OpenPaymentsException(message, response.getStatusCode(), request, errorCode, errorDescription, body, null);
+    }
+
+    /**
+     * Creates the exception for a request that did not receive a response.
+     */
+    public static OpenPaymentsException fromFailure(Request request, Throwable cause){
+        String message = request == null
+            ? "Open Payments request failed: " + cause
+            : String.format("%s %s failed: %s", request.getMethod(), request.getUrl(), cause);
+        return new OpenPaymentsException(message, NO_STATUS, request, null, null, null, cause);
+    }
+
+    /**
+     * Returns {@code error} as an {@code OpenPaymentsException}, wrapping it if it is not one already.
+     */
+    public static OpenPaymentsException wrap(Request request, Throwable error){
+        return error instanceof OpenPaymentsException ? (OpenPaymentsException) error : fromFailure(request, error);
+    }
+
+    private static String stringField(JsonObject object, String name){
+        JsonElement value = object.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+
+    /**
+     * @return The HTTP status code of the error response, or {@link #NO_STATUS} if no response was received.
+     */
+    public int getStatusCode(){
+        return this.statusCode;
+    }
+
+    public boolean hasResponse(){
+        return this.statusCode != NO_STATUS;
+    }
+
+    public String getMethod(){
+        return this.method;
+    }
+
+    public String getUrl(){
+        return this.url;
+    }
+
+    /**
+     * @return The operation that failed, or {@code null} if the request was not tagged with one.
+     */
+    public Operation getOperation(){
+        return this.operation;
+    }
+
+    /**
+     * @return The {@code error.code} of the Open Payments error body, or {@code null} if absent.
+     */
+    public String getErrorCode(){
+        return this.errorCode;
+    }
+
+    /**
+     * @return The {@code error.description} of the Open Payments error body, or {@code null} if absent.
+     */
+    public String getErrorDescription(){
+        return this.errorDescription;
+    }
+
+    /**
+     * @return The raw error response body, or {@code null} if no response was received.
+     */
+    public String getBody(){
+        return this.body;
+    }
+}
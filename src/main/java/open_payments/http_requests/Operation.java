@@ -0,0 +1,31 @@
+package open_payments.http_requests;
+
+/**
+ * The Open Payments operation a {@link Request} performs, so transports can apply per-operation policies such as
+ * timeouts and retries.
+ */
+public enum Operation {
+    GET_WALLET_ADDRESS(true),
+    REQUEST_GRANT(false),
+    CONTINUE_GRANT(false),
+    ROTATE_TOKEN(false),
+    CREATE_INCOMING_PAYMENT(false),
+    CREATE_QUOTE(false),
+    CREATE_OUTGOING_PAYMENT(false),
+    LIST_INCOMING_PAYMENTS(true),
+    LIST_OUTGOING_PAYMENTS(true);
+
+    private final boolean idempotent;
+
+    Operation(boolean idempotent){
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * @return {@code true} if sending the request more than once has the same effect as sending it once, so it may
+     *         be retried after a timeout or a failure with an unknown outcome.
+     */
+    public boolean isIdempotent(){
+        return this.idempotent;
+    }
+}
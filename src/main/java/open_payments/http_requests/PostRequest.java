@@ -1,65 +1,58 @@
 package open_payments.http_requests;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
-public class PostRequest {
-    String urlString;
-    HashMap<String, String> headers;
-    String body;
+public class PostRequest extends Request {
+    byte[] body;
     String response;
-    HttpURLConnection con;
 
-    public PostRequest(String urlString,  String body) throws Exception{
-        this.urlString = urlString;
+    public PostRequest(String urlString,  String body){
+        this(urlString, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param urlString The URL to POST to.
+     * @param body      The encoded request body. The array is sent as is, not copied, and must not be modified afterwards.
+     */
+    public PostRequest(String urlString, byte[] body){
+        super("POST", urlString, new HashMap<>());
         this.body = body;
-        URL url = new URL(urlString);
-        this.con = (HttpURLConnection) url.openConnection();
-        this.con.setRequestMethod("POST");
-        this.con.setDoOutput(true);
     }
 
-    public HttpURLConnection getConnection(){
-        return this.con;
+    @Override
+    public byte[] getBodyBytes(){
+        return this.body;
     }
-            
-    public void send() throws Exception{
-        try (OutputStream os = con.getOutputStream()) {
-            byte[] input = this.body.getBytes("utf-8");
-            os.write(input, 0, input.length);           
-        }
-        // Get the response code
-        int responseCode = con.getResponseCode();
 
-        if (responseCode == HttpURLConnection.HTTP_OK || responseCode == HttpURLConnection.HTTP_CREATED ) { //success
-			BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-			String inputLine;
-			StringBuffer response = new StringBuffer();
+    public void send(HttpTransport transport) throws Exception{
+        handleResponse(transport.send(this));
+    }
 
-			while ((inputLine = in.readLine()) != null) {
-				response.append(inputLine);
-			}
-			in.close();
-            this.response = response.toString();
-            
-		} else {
-            if(responseCode == HttpURLConnection.HTTP_UNAUTHORIZED){
-                BufferedReader in = new BufferedReader(new InputStreamReader(con.getErrorStream()));
-                String inputLine;
-                StringBuffer response = new StringBuffer();
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param transport The transport to send the request through.
+     * @return A future completed with the response body, or completed exceptionally if the request failed.
+     */
+    public CompletableFuture<String> sendAsync(HttpTransport transport){
+        return execute(transport).thenApply(this::handleResponse);
+    }
 
-                while ((inputLine = in.readLine()) != null) {
-                    response.append(inputLine);
-                }
-                in.close();
-            }
-			System.out.println("POST request did not work.");
-            this.response = null; // represents a failed request
-            throw new Exception("POST request failed");
-		}
+    private String handleResponse(Response res){
+        this.response = null; // represents a failed request
+        checkStatus(res);
+        this.response = res.getBodyAsString();
+        return this.response;
+    }
+
+    @Override
+    void checkStatus(Response res){
+        int responseCode = res.getStatusCode();
+        if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_CREATED ) {
+            throw OpenPaymentsException.fromResponse(this, res);
+        }
     }
 
     public String getResponse(){
@@ -69,6 +62,6 @@ public class PostRequest {
     @Override
     public String toString() {
         String s = "Url: %s\nHeaders: %s\nBody: %s";
-        return String.format(s, this.urlString, this.headers.toString(), this.body);
+        return String.format(s, this.urlString, this.headers.toString(), new String(this.body, StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,147 @@
+package open_payments.http_requests;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import open_payments.http_utils.JsonCodec;
+import open_payments.metrics.ClientMetrics;
+
+/**
+ * A transport-neutral HTTP request. Headers are collected (and signed) on the request itself and the
+ * request is then handed to an {@link HttpTransport} to be executed.
+ */
+public abstract class Request {
+    String urlString;
+    String method;
+    HashMap<String, String> headers;
+    Operation operation;
+    Duration timeout;
+    ClientMetrics metrics = ClientMetrics.NOOP;
+
+    Request(String method, String urlString, HashMap<String, String> headers){
+        this.method = method;
+        this.urlString = urlString;
+        this.headers = headers == null ? new HashMap<>() : headers;
+    }
+
+    public String getMethod(){
+        return this.method;
+    }
+
+    public String getUrl(){
+        return this.urlString;
+    }
+
+    public HashMap<String, String> getHeaders(){
+        return this.headers;
+    }
+
+    public String getHeader(String name){
+        return this.headers.get(name);
+    }
+
+    public void setHeader(String name, String value){
+        this.headers.put(name, value);
+    }
+
+    /**
+     * @return The operation this request performs, or {@code null} if it has not been tagged.
+     */
+    public Operation getOperation(){
+        return this.operation;
+    }
+
+    public void setOperation(Operation operation){
+        this.operation = operation;
+    }
+
+    /**
+     * @return {@code true} if the operation has the same effect however often it is sent. An
+     *         {@code idempotency-key} header does not make a request idempotent, as the Open Payments API does not
+     *         define it; see {@link ResiliencePolicy.Builder#trustIdempotencyKeys(boolean)}.
+     */
+    public boolean isIdempotent(){
+        return this.operation != null ? this.operation.isIdempotent() : "GET".equals(this.method);
+    }
+
+    /**
+     * @return The maximum time to wait for the response, or {@code null} to use the transport's default.
+     */
+    public Duration getTimeout(){
+        return this.timeout;
+    }
+
+    public void setTimeout(Duration timeout){
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The metrics the request's transport, signing and decoding are recorded in.
+     */
+    public ClientMetrics getMetrics(){
+        return this.metrics;
+    }
+
+    public void setMetrics(ClientMetrics metrics){
+        this.metrics = metrics == null ? ClientMetrics.NOOP : metrics;
+    }
+
+    /**
+     * @return The raw request body, or {@code null} if the request does not carry one.
+     */
+    public abstract byte[] getBodyBytes();
+
+    /**
+     * Sends the request without blocking the calling thread and decodes a successful response body with {@code codec}.
+     *
+     * @param transport    The transport to send the request through.
+     * @param codec        The codec used to parse the response body.
+     * @param responseType The type to parse the response body into.
+     * @return A future completed with the parsed response, or completed exceptionally if the request failed.
+     */
+    public <T> CompletableFuture<T> sendAsync(HttpTransport transport, JsonCodec codec, Class<T> responseType){
+        return execute(transport).thenApply(res -> {
+            long start = System.nanoTime();
+            T decoded = codec.decode(res.getBody(), responseType);
+            this.metrics.deserialized(this.operation, System.nanoTime() - start, res.getBody() == null ? 0 : res.getBody().length);
+            return decoded;
+        });
+    }
+
+    /**
+     * Sends the request without blocking the calling thread, for callers that need the response headers as well as the body.
+     *
+     * @return A future completed with the response if its status indicates success, or completed exceptionally with an
+     *         {@link OpenPaymentsException} otherwise.
+     */
+    public CompletableFuture<Response> execute(HttpTransport transport){
+        long start = System.nanoTime();
+        CompletableFuture<Response> response;
+        try{
+            response = transport.sendAsync(this);
+        }catch(RuntimeException e){
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((res, error) -> {
+            if(error != null){
+                this.metrics.operationCompleted(this.operation, System.nanoTime() - start, false);
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                throw OpenPaymentsException.wrap(this, cause);
+            }
+            try{
+                checkStatus(res);
+            }catch(OpenPaymentsException e){
+                this.metrics.operationCompleted(this.operation, System.nanoTime() - start, false);
+                throw e;
+            }
+            this.metrics.operationCompleted(this.operation, System.nanoTime() - start, true);
+            return res;
+        });
+    }
+
+    /**
+     * @throws OpenPaymentsException If the response status does not indicate success.
+     */
+    abstract void checkStatus(Response res);
+}
@@ -0,0 +1,212 @@
+package open_payments.http_requests;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Timeouts, retries and circuit breaking applied by a {@link ResilientTransport}. Instances are immutable and created
+ * through {@link #builder()}.
+ *
+ * <p>Requests answered with one of the {@linkplain Builder#retryStatuses(Set) retry statuses} (by default 429 and 503,
+ * which servers send before doing any work) are retried whatever the operation. Idempotent requests are also retried
+ * after a timeout, a lost connection or one of the {@linkplain Builder#idempotentRetryStatuses(Set) idempotent retry
+ * statuses}. Other requests are only retried if the connection could not be established, as they were never sent.
+ * Payment creations fall in the latter group even when they carry an {@code Idempotency-Key}, unless
+ * {@linkplain Builder#trustIdempotencyKeys(boolean) the server is trusted} to deduplicate on it.</p>
+ */
+public class ResiliencePolicy {
+    final int maxAttempts;
+    final Duration initialBackoff;
+    final Duration maxBackoff;
+    final Duration maxRetryAfter;
+    final Set<Integer> retryStatuses;
+    final Set<Integer> idempotentRetryStatuses;
+    final Duration timeout;
+    final EnumMap<Operation, Duration> operationTimeouts;
+    final CircuitBreaker circuitBreaker;
+    final boolean trustIdempotencyKeys;
+
+    private ResiliencePolicy(Builder builder){
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.maxRetryAfter = builder.maxRetryAfter;
+        this.retryStatuses = builder.retryStatuses;
+        this.idempotentRetryStatuses = builder.idempotentRetryStatuses;
+        this.timeout = builder.timeout;
+        this.operationTimeouts = new EnumMap<>(builder.operationTimeouts);
+        this.circuitBreaker = builder.circuitBreaker;
+        this.trustIdempotencyKeys = builder.trustIdempotencyKeys;
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    public static ResiliencePolicy defaults(){
+        return new Builder().build();
+    }
+
+    public int getMaxAttempts(){
+        return this.maxAttempts;
+    }
+
+    public Duration getMaxRetryAfter(){
+        return this.maxRetryAfter;
+    }
+
+    public Set<Integer> getRetryStatuses(){
+        return this.retryStatuses;
+    }
+
+    public Set<Integer> getIdempotentRetryStatuses(){
+        return this.idempotentRetryStatuses;
+    }
+
+    /**
+     * @return The timeout for each attempt at {@code operation}, or {@code null} to use the transport's default.
+     */
+    public Duration getTimeout(Operation operation){
+        Duration timeout = operation == null ? null : this.operationTimeouts.get(operation);
+        return timeout != null ? timeout : this.timeout;
+    }
+
+    /**
+     * @return Whether requests carrying an {@code idempotency-key} header are retried like idempotent ones.
+     */
+    public boolean isTrustIdempotencyKeys(){
+        return this.trustIdempotencyKeys;
+    }
+
+    /**
+     * @return Whether {@code request} may be sent again after an attempt with an unknown outcome.
+     */
+    boolean isRetrySafe(Request request){
+        return request.isIdempotent() || (this.trustIdempotencyKeys && request.getHeader("idempotency-key") != null);
+    }
+
+    /**
+     * @return The circuit breaker, or {@code null} if circuit breaking is disabled.
+     */
+    public CircuitBreaker getCircuitBreaker(){
+        return this.circuitBreaker;
+    }
+
+    /**
+     * @param attempt The attempt that just failed, starting at 1.
+     * @return A random delay between zero and the exponential backoff for the attempt, capped at the maximum backoff.
+     */
+    public Duration backoff(int attempt){
+        long cap = this.initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        if(cap <= 0 || cap > this.maxBackoff.toMillis()){
+            cap = this.maxBackoff.toMillis();
+        }
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    public static class Builder {
+        int maxAttempts = 3;
+        Duration initialBackoff = Duration.ofMillis(100);
+        Duration maxBackoff = Duration.ofSeconds(5);
+        Duration maxRetryAfter = Duration.ofSeconds(30);
+        Set<Integer> retryStatuses = Set.of(429, 503);
+        Set<Integer> idempotentRetryStatuses = Set.of(500, 502, 504);
+        Duration timeout = null;
+        EnumMap<Operation, Duration> operationTimeouts = new EnumMap<>(Operation.class);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(5, Duration.ofSeconds(30));
+        boolean trustIdempotencyKeys = false;
+
+        private Builder(){}
+
+        /**
+         * @param maxAttempts The maximum number of times a request is sent, {@code 1} disabling retries.
+         */
+        public Builder maxAttempts(int maxAttempts){
+            if(maxAttempts < 1){
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the exponential backoff between attempts: the delay before retry {@code n} is chosen at random between
+         * zero and {@code initialBackoff * 2^(n-1)}, capped at {@code maxBackoff}.
+         */
+        public Builder backoff(Duration initialBackoff, Duration maxBackoff){
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * @param maxRetryAfter The longest {@code Retry-After} the client waits for. A response asking for a longer
+         *                      wait is returned to the caller rather than retried.
+         */
+        public Builder maxRetryAfter(Duration maxRetryAfter){
+            this.maxRetryAfter = maxRetryAfter;
+            return this;
+        }
+
+        /**
+         * @param retryStatuses Statuses after which any request is retried, honouring {@code Retry-After}.
+         */
+        public Builder retryStatuses(Set<Integer> retryStatuses){
+            this.retryStatuses = Collections.unmodifiableSet(Set.copyOf(retryStatuses));
+            return this;
+        }
+
+        /**
+         * @param idempotentRetryStatuses Additional statuses after which idempotent requests are retried.
+         */
+        public Builder idempotentRetryStatuses(Set<Integer> idempotentRetryStatuses){
+            this.idempotentRetryStatuses = Collections.unmodifiableSet(Set.copyOf(idempotentRetryStatuses));
+            return this;
+        }
+
+        /**
+         * @param timeout The maximum time to wait for each attempt at an operation without its own timeout, or
+         *                {@code null} to use the transport's request timeout.
+         */
+        public Builder timeout(Duration timeout){
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param operation The operation the timeout applies to.
+         * @param timeout   The maximum time to wait for each attempt at the operation.
+         */
+        public Builder timeout(Operation operation, Duration timeout){
+            this.operationTimeouts.put(operation, timeout);
+            return this;
+        }
+
+        /**
+         * @param circuitBreaker The circuit breaker to use, which may be shared between transports, or {@code null} to
+         *                       disable circuit breaking.
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker){
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * @param trustIdempotencyKeys Whether to retry payment creations carrying an {@code Idempotency-Key} after a
+         *                             timeout, a lost connection or an idempotent retry status. The Open Payments API
+         *                             does not define the header, so enable this only if the resource server is
+         *                             known to recognise a repeated key; otherwise a retry can create a second
+         *                             payment. Off by default.
+         */
+        public Builder trustIdempotencyKeys(boolean trustIdempotencyKeys){
+            this.trustIdempotencyKeys = trustIdempotencyKeys;
+            return this;
+        }
+
+        public ResiliencePolicy build(){
+            return new ResiliencePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package open_payments.http_requests;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link HttpTransport} decorator that applies a {@link ResiliencePolicy}: a timeout for each attempt, jittered
+ * exponential retries honouring {@code Retry-After}, and a circuit breaker per server.
+ *
+ * <p>Retries are scheduled without blocking a thread. The response of the last attempt is returned whatever its
+ * status, so error responses still reach the caller as an {@link OpenPaymentsException}; requests rejected by an open
+ * circuit fail with a {@link CircuitOpenException}.</p>
+ */
+public class ResilientTransport implements HttpTransport {
+    private final HttpTransport delegate;
+    private final ResiliencePolicy policy;
+    private final LongAdder retries = new LongAdder();
+
+    public ResilientTransport(HttpTransport delegate){
+        this(delegate, ResiliencePolicy.defaults());
+    }
+
+    public ResilientTransport(HttpTransport delegate, ResiliencePolicy policy){
+        this.delegate = delegate;
+        this.policy = policy;
+    }
+
+    public ResiliencePolicy getPolicy(){
+        return this.policy;
+    }
+
+    /**
+     * @return The number of requests sent again after a failed attempt.
+     */
+    public long getRetryCount(){
+        return this.retries.sum();
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request){
+        Duration timeout = request.getTimeout() != null ? request.getTimeout() : this.policy.getTimeout(request.getOperation());
+        if(timeout != null){
+            request.setTimeout(timeout);
+        }
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        attempt(request, 1, timeout, result);
+        return result;
+    }
+
+    private void attempt(Request request, int attempt, Duration timeout, CompletableFuture<Response> result){
+        String url = request.getUrl();
+        CircuitBreaker breaker = this.policy.circuitBreaker;
+        if(breaker != null && !breaker.tryAcquire(url)){
+            result.completeExceptionally(new CircuitOpenException(request, HostConcurrencyLimiter.origin(url)));
+            return;
+        }
+        CompletableFuture<Response> response;
+        try{
+            response = this.delegate.sendAsync(request);
+        }catch(RuntimeException e){
+            response = CompletableFuture.failedFuture(e);
+        }
+        if(timeout != null){
+            // bounds the attempt even if the delegate does not honour the request timeout, e.g. while queued
+            response = response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        response.whenComplete((res, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if(breaker != null){
+                if(cause != null || res.getStatusCode() >= 500){
+                    breaker.onFailure(url);
+                }else{
+                    breaker.onSuccess(url);
+                }
+            }
+            Duration delay = attempt < this.policy.maxAttempts ? retryDelay(request, res, cause, attempt) : null;
+            if(delay == null){
+                if(cause != null){
+                    result.completeExceptionally(cause);
+                }else{
+                    result.complete(res);
+                }
+                return;
+            }
+            this.retries.increment();
+            request.getMetrics().retried(request.getOperation(), attempt, res == null ? OpenPaymentsException.NO_STATUS : res.getStatusCode(), cause);
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(() -> attempt(request, attempt + 1, timeout, result));
+        });
+    }
+
+    /**
+     * @return How long to wait before retrying, or {@code null} if the attempt must not be retried.
+     */
+    private Duration retryDelay(Request request, Response res, Throwable cause, int attempt){
+        if(cause != null){
+            boolean neverSent = cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+            return neverSent || this.policy.isRetrySafe(request) ? this.policy.backoff(attempt) : null;
+        }
+        int status = res.getStatusCode();
+        if(!this.policy.retryStatuses.contains(status)
+            && !(this.policy.isRetrySafe(request) && this.policy.idempotentRetryStatuses.contains(status))){
+            return null;
+        }
+        Duration retryAfter = parseRetryAfter(res.getHeader("retry-after"), Instant.now());
+        if(retryAfter == null){
+            return this.policy.backoff(attempt);
+        }
+        return retryAfter.compareTo(this.policy.maxRetryAfter) <= 0 ? retryAfter : null;
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either in seconds or as an HTTP date.
+     *
+     * @return The time to wait, or {@code null} if the header is absent or malformed.
+     */
+    static Duration parseRetryAfter(String value, Instant now){
+        if(value == null || value.isBlank()){
+            return null;
+        }
+        value = value.trim();
+        try{
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        }catch(NumberFormatException e){
+            // not delta-seconds, try an HTTP date
+        }
+        try{
+            Instant at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return at.isAfter(now) ? Duration.between(now, at) : Duration.ZERO;
+        }catch(DateTimeParseException e){
+            return null;
+        }
+    }
+}
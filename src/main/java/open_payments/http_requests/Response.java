@@ -0,0 +1,63 @@
+package open_payments.http_requests;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import open_payments.metrics.ConnectionReuse;
+
+/**
+ * The status, headers and raw body of a response returned by an {@link HttpTransport}.
+ */
+public class Response {
+    int statusCode;
+    Map<String, List<String>> headers;
+    byte[] body;
+    ConnectionReuse connectionReuse;
+
+    public Response(int statusCode, Map<String, List<String>> headers, byte[] body){
+        this(statusCode, headers, body, ConnectionReuse.UNKNOWN);
+    }
+
+    public Response(int statusCode, Map<String, List<String>> headers, byte[] body, ConnectionReuse connectionReuse){
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.connectionReuse = connectionReuse;
+    }
+
+    public int getStatusCode(){
+        return this.statusCode;
+    }
+
+    public Map<String, List<String>> getHeaders(){
+        return this.headers;
+    }
+
+    /**
+     * @param name The header name, matched case-insensitively.
+     * @return The first value of the header, or {@code null} if it is absent.
+     */
+    public String getHeader(String name){
+        for (Map.Entry<String, List<String>> header : this.headers.entrySet()) {
+            if(header.getKey() != null && header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()){
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody(){
+        return this.body;
+    }
+
+    /**
+     * @return Whether the response was received over a connection that was already open, as far as the transport can tell.
+     */
+    public ConnectionReuse getConnectionReuse(){
+        return this.connectionReuse;
+    }
+
+    public String getBodyAsString(){
+        return this.body == null ? null : new String(this.body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+package open_payments.http_requests;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Tuning options for an {@link HttpClientTransport}. Instances are immutable and created through {@link #builder()}.
+ */
+public class TransportConfig {
+    final Duration connectTimeout;
+    final Duration requestTimeout;
+    final HttpClient.Version httpVersion;
+    final int connectionPoolSize;
+    final Duration keepAlive;
+    final Executor executor;
+
+    private TransportConfig(Builder builder){
+        this.connectTimeout = builder.connectTimeout;
+        this.requestTimeout = builder.requestTimeout;
+        this.httpVersion = builder.httpVersion;
+        this.connectionPoolSize = builder.connectionPoolSize;
+        this.keepAlive = builder.keepAlive;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    public static TransportConfig defaults(){
+        return new Builder().build();
+    }
+
+    public Duration getConnectTimeout(){
+        return this.connectTimeout;
+    }
+
+    public Duration getRequestTimeout(){
+        return this.requestTimeout;
+    }
+
+    public HttpClient.Version getHttpVersion(){
+        return this.httpVersion;
+    }
+
+    public int getConnectionPoolSize(){
+        return this.connectionPoolSize;
+    }
+
+    public Duration getKeepAlive(){
+        return this.keepAlive;
+    }
+
+    public Executor getExecutor(){
+        return this.executor;
+    }
+
+    public static class Builder {
+        Duration connectTimeout = Duration.ofSeconds(10);
+        Duration requestTimeout = Duration.ofSeconds(30);
+        HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+        int connectionPoolSize = 0;
+        Duration keepAlive = null;
+        Executor executor = null;
+
+        private Builder(){}
+
+        /**
+         * @param connectTimeout Maximum time to wait for a TCP (and TLS) connection to be established.
+         */
+        public Builder connectTimeout(Duration connectTimeout){
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param requestTimeout Maximum time to wait for a response once a request has been sent, or {@code null} for no limit.
+         */
+        public Builder requestTimeout(Duration requestTimeout){
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * @param httpVersion The preferred HTTP version. With {@code HTTP_2} requests to the same server are multiplexed
+         *                    over a single connection, falling back to HTTP/1.1 if the server does not support it.
+         */
+        public Builder httpVersion(HttpClient.Version httpVersion){
+            this.httpVersion = httpVersion;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of idle HTTP/1.1 connections kept alive for reuse, {@code 0} meaning unbounded.
+         *
+         * <p>The JDK only reads this setting (the {@code jdk.httpclient.connectionPoolSize} system property) once per
+         * process, so it only takes effect if applied before the first transport is created and is shared by all of them.</p>
+         */
+        public Builder connectionPoolSize(int connectionPoolSize){
+            if(connectionPoolSize < 0){
+                throw new IllegalArgumentException("connectionPoolSize must not be negative");
+            }
+            this.connectionPoolSize = connectionPoolSize;
+            return this;
+        }
+
+        /**
+         * Sets how long idle connections are kept alive. Like {@link #connectionPoolSize(int)} this is a process-wide
+         * JDK setting ({@code jdk.httpclient.keepalive.timeout}).
+         */
+        public Builder keepAlive(Duration keepAlive){
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param executor The executor used by the underlying {@code HttpClient} for its asynchronous tasks,
+         *                 or {@code null} to use the JDK default.
+         */
+        public Builder executor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Runs the underlying {@code HttpClient} on a virtual-thread-per-task executor, so blocking calls made by the
+         * client never pin a platform thread. Requires Java 21 or later.
+         *
+         * @throws UnsupportedOperationException If the running JDK does not support virtual threads.
+         */
+        public Builder virtualThreads(){
+            this.executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            return this;
+        }
+
+        public TransportConfig build(){
+            return new TransportConfig(this);
+        }
+    }
+}
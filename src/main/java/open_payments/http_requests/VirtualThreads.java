@@ -0,0 +1,46 @@
+package open_payments.http_requests;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to the JDK's virtual-thread-per-task executor.
+ *
+ * <p>The library is compiled for Java 17, so the executor is looked up reflectively and only available when running
+ * on Java 21 or later.</p>
+ */
+public final class VirtualThreads {
+    private static final Method FACTORY = lookupFactory();
+
+    private VirtualThreads(){}
+
+    /**
+     * @return {@code true} if the running JDK supports virtual threads.
+     */
+    public static boolean isSupported(){
+        return FACTORY != null;
+    }
+
+    /**
+     * @return A new executor that starts a virtual thread for each task.
+     * @throws UnsupportedOperationException If the running JDK does not support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(){
+        if(FACTORY == null){
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on " + Runtime.version());
+        }
+        try{
+            return (ExecutorService) FACTORY.invoke(null);
+        }catch(ReflectiveOperationException e){
+            throw new UnsupportedOperationException("Failed to create a virtual thread executor", e);
+        }
+    }
+
+    private static Method lookupFactory(){
+        try{
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }catch(NoSuchMethodException e){
+            return null;
+        }
+    }
+}
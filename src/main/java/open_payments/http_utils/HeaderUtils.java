@@ -1,46 +1,53 @@
 package open_payments.http_utils;
-import java.io.FileReader;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.security.KeyFactory;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.Signature;
-import java.security.spec.PKCS8EncodedKeySpec;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 
-import org.bouncycastle.util.io.pem.PemObject;
-import org.bouncycastle.util.io.pem.PemReader;
+import open_payments.http_requests.Request;
 
 public class HeaderUtils {
     PrivateKey key;
     String keyID;
+    SigningEngine signer;
     
+    /**
+     * Creates header utilities that sign with the private key in {@code pk_filename}, loaded through
+     * {@link SignerRegistry#getDefault()}.
+     *
+     * @param pk_filename The PEM file holding the Ed25519 private key.
+     * @param keyId       The key ID sent in the signature parameters.
+     * @throws IllegalArgumentException If the file cannot be read or does not hold an Ed25519 private key.
+     */
     public HeaderUtils(String pk_filename, String keyId){
         try{
-            this.key = getKey(pk_filename);
-            this.keyID = keyId;
+            this.signer = SignerRegistry.getDefault().load(keyId, pk_filename);
         }catch(Exception e){
-            System.out.println(e);
+            throw new IllegalArgumentException("Failed to load private key " + pk_filename + " for key ID " + keyId, e);
         }
+        this.key = this.signer.getKey();
+        this.keyID = keyId;
     }
 
-    private PrivateKey getKey(String filePath) throws Exception{
-          PemReader pemReader = new PemReader(new FileReader(filePath));
-          PemObject pemObject = pemReader.readPemObject();
-          byte[] privateKeyBytes = pemObject.getContent();
-          pemReader.close(); 
-          // Create a PrivateKey object
-          PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
-          KeyFactory keyFactory = KeyFactory.getInstance("Ed25519");
-          PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
-          return privateKey;
-   }
+    /**
+     * Creates header utilities that sign with an already loaded key, for example one from a {@link SignerRegistry}.
+     * Nothing is read or parsed, so this is cheap enough to do per client.
+     *
+     * @param signer The signer for the private key.
+     * @param keyId  The key ID sent in the signature parameters.
+     */
+    public HeaderUtils(SigningEngine signer, String keyId){
+        this.signer = signer;
+        this.key = signer.getKey();
+        this.keyID = keyId;
+    }
+
+    public String getKeyId(){
+        return this.keyID;
+    }
 
     public HashMap<String, String> getUnsignedHeaders(){
         HashMap<String, String> headers = new HashMap<>();
@@ -49,77 +56,106 @@ public class HeaderUtils {
         return headers;
     }
 
-    public void addDefaultHeaders(HttpURLConnection connection, String body) throws Exception{
-        int contentLength = body.getBytes("UTF-8").length;
+    public void addDefaultHeaders(Request request, String body) throws Exception{
+        addDefaultHeaders(request, body.getBytes("UTF-8"));
+    }
+
+    /**
+     * Adds the JSON and body headers for an already encoded body. The same bytes are used for the content-digest,
+     * the content-length and, through the request, the transport, so the body is only ever encoded once.
+     */
+    public void addDefaultHeaders(Request request, byte[] body) throws Exception{
         try{
-          connection.setRequestProperty("accept", "application/json");
-          connection.setRequestProperty("content-type", "application/json");
-          connection.setRequestProperty("content-digest", "sha-512=:" + hash(body) + ":");
-          connection.setRequestProperty("content-length", Integer.toString(contentLength));
+          request.setHeader("accept", "application/json");
+          request.setHeader("content-type", "application/json");
+          request.setHeader("content-digest", "sha-512=:" + hash(body) + ":");
+          request.setHeader("content-length", Integer.toString(body.length));
         }catch(Exception e){
           throw new Exception("Failed to add headers" + e);
         }
     }
 
-    public void addDefaultHeaders(HttpURLConnection connection) throws Exception{
-        connection.setRequestProperty("accept", "application/json");
-        connection.setRequestProperty("content-type", "application/json");
+    public void addDefaultHeaders(Request request) throws Exception{
+        request.setHeader("accept", "application/json");
+        request.setHeader("content-type", "application/json");
+    }
+
+    private static final String[] COVERED_WITH_BODY = {"content-digest", "content-length", "content-type"};
+    private static final String[] COVERED_NO_BODY = {"content-type"};
+    private static final String[] COVERED_WITH_BODY_AND_KEY = {"content-digest", "content-length", "content-type", "idempotency-key"};
+
+    public void signRequest(Request request, String body, String authToken)throws Exception{
+        signRequest(request, body != null, authToken);
+    }
+
+    public void signRequest(Request request, byte[] body, String authToken)throws Exception{
+        signRequest(request, body != null, authToken);
     }
 
-    public void signRequest(HttpURLConnection connection, String body, String authToken)throws Exception{
-        String[] coveredArr = {"content-digest", "content-length", "content-type"};
-        String[] coveredArrNoBody = {"content-type"};
-        if(body == null){
-            coveredArr = coveredArrNoBody;
+    private void signRequest(Request request, boolean coversBody, String authToken)throws Exception{
+        String[] coveredComponents = coversBody ? COVERED_WITH_BODY : COVERED_NO_BODY;
+        if(coversBody && request.getHeader("idempotency-key") != null){
+            // signed so the key cannot be stripped or swapped for another payment's
+            coveredComponents = COVERED_WITH_BODY_AND_KEY;
         }
-        ArrayList<String> coveredComponents = new ArrayList<String>(Arrays.asList(coveredArr));
-        String signatureBase = getSignatureBase(connection, coveredComponents, body, authToken);
-        String signature = getSignature(signatureBase);
-        connection.setRequestProperty("signature", String.format("sig1=:%s:", signature));
-        String[] sig_base_split = signatureBase.split(":");
-        connection.setRequestProperty("signature-input", "sig1=" + sig_base_split[sig_base_split.length -1].strip());
+        long start = System.nanoTime();
+        SignatureBase signatureBase = SignatureBase.borrow();
+        try{
+            String signatureInput = writeSignatureBase(signatureBase, request, coveredComponents, authToken);
+            byte[] signedBytes = this.signer.sign(signatureBase.getBytes(), 0, signatureBase.getLength());
+            request.setHeader("signature", "sig1=:" + Base64.getEncoder().encodeToString(signedBytes) + ":");
+            request.setHeader("signature-input", "sig1=" + signatureInput);
+        }finally{
+            SignatureBase.release(signatureBase);
+        }
+        request.getMetrics().signed(request.getOperation(), System.nanoTime() - start);
     }
 
-    private String getSignature(String signatureBase) throws Exception{
-        Signature signature = Signature.getInstance("Ed25519");
-        signature.initSign(this.key);
-        signature.update(signatureBase.getBytes("UTF-8"));
-        byte[] signedBytes = signature.sign();
-        String final_signature = Base64.getEncoder().encodeToString(signedBytes);
-        return final_signature;
+    public String getSignatureBase(Request request, ArrayList<String> coveredComponents, String body, String authToken){
+        SignatureBase signatureBase = new SignatureBase();
+        writeSignatureBase(signatureBase, request, coveredComponents.toArray(new String[0]), authToken);
+        return signatureBase.toString();
     }
 
-    public String getSignatureBase(HttpURLConnection connection, ArrayList<String> coveredComponents, String body, String authToken){
-        String signatureBase = "";
-        String signatureInput = "(\"@method\" \"@target-uri\" ";
-        signatureBase += "\"@method\": " + connection.getRequestMethod() + "\n";
-        signatureBase += "\"@target-uri\": " + connection.getURL() + "\n";
+    /**
+     * Writes the covered components of {@code request} into {@code signatureBase}.
+     *
+     * @return The signature parameters to send in the signature-input header.
+     */
+    private String writeSignatureBase(SignatureBase signatureBase, Request request, String[] coveredComponents, String authToken){
+        signatureBase.method(request.getMethod());
+        signatureBase.targetUri(request.getUrl());
 
         if(authToken != null){
-            signatureBase += "\"authorization\": " + "GNAP " + authToken + '\n';
-            signatureInput += ( String.format("\"%s\" ", "authorization"));
+            signatureBase.component("authorization", "GNAP ", authToken);
         }
 
         for (String component : coveredComponents) {
-            String prop = component == "content-length" ? Integer.toString(body.getBytes().length) : connection.getRequestProperty(component);
-            signatureBase += String.format("\"%s\": ", component) + prop + "\n";
-            signatureInput += ( String.format("\"%s\" ", component));
+            if(component.equals("content-length")){
+                String contentLength = request.getHeader("content-length");
+                if(contentLength == null){
+                    signatureBase.component(component, request.getBodyBytes().length);
+                }else{
+                    signatureBase.component(component, contentLength);
+                }
+            }else{
+                signatureBase.component(component, request.getHeader(component));
+            }
         }
-        signatureInput = signatureInput.strip() + ")";
-        signatureInput += (";keyid=\"" + this.keyID + "\";");
-        signatureInput += ("created=" + Instant.now().getEpochSecond());
-        signatureBase += ("\"@signature-params\": " + signatureInput.strip());
-        return signatureBase;
+        return signatureBase.finish(this.keyID, Instant.now().getEpochSecond());
     }
 
     public static String hash(String body) throws NoSuchAlgorithmException, UnsupportedEncodingException{
-        MessageDigest digest = MessageDigest.getInstance("SHA-512");
-        byte[] hashBytes = digest.digest(body.getBytes("UTF-8"));
+        return hash(body.getBytes("UTF-8"));
+    }
+
+    public static String hash(byte[] body){
+        byte[] hashBytes = SigningEngine.sha512(body);
         String base64Hash = Base64.getEncoder().encodeToString(hashBytes);
         return base64Hash;
     }
 
-    public void addAuthHeader(HttpURLConnection connection, String token){
-          connection.setRequestProperty("authorization", "GNAP " + token);
+    public void addAuthHeader(Request request, String token){
+          request.setHeader("authorization", "GNAP " + token);
     }
 }
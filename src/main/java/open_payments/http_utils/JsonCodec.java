@@ -0,0 +1,72 @@
+package open_payments.http_utils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes request and response bodies with Gson's streaming {@link JsonReader} and {@link JsonWriter}, so
+ * bodies go straight between bytes and objects without an intermediate {@code String}.
+ */
+public class JsonCodec {
+    private static final JsonCodec DEFAULT = new JsonCodec(new GsonBuilder().create());
+
+    private final Gson gson;
+
+    public JsonCodec(Gson gson){
+        this.gson = gson;
+    }
+
+    /**
+     * @return A codec shared by every client that is not given one explicitly.
+     */
+    public static JsonCodec getDefault(){
+        return DEFAULT;
+    }
+
+    public Gson getGson(){
+        return this.gson;
+    }
+
+    /**
+     * @return {@code value} serialised as compact UTF-8 JSON.
+     */
+    public byte[] encode(Object value){
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try(JsonWriter writer = this.gson.newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))){
+            this.gson.toJson(value, value.getClass(), writer);
+        }catch(IOException e){
+            // a ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Parses a UTF-8 JSON document from {@code in} in a single pass. The stream is closed afterwards.
+     */
+    public <T> T decode(InputStream in, Type type) throws IOException {
+        try(JsonReader reader = this.gson.newJsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))){
+            return this.gson.fromJson(reader, type);
+        }
+    }
+
+    public <T> T decode(byte[] body, Type type){
+        try{
+            return decode(new ByteArrayInputStream(body), type);
+        }catch(IOException e){
+            throw new JsonParseException(e);
+        }
+    }
+}
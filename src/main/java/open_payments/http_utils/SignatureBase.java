@@ -0,0 +1,199 @@
+package open_payments.http_utils;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Builds the HTTP message signature base for a request directly into a reusable byte buffer.
+ *
+ * <p>Covered components are written one line at a time as {@code "name": value}, while the component identifiers
+ * are collected for the {@code @signature-params} line. {@link #finish(String, long)} returns the signature-input
+ * header value and leaves the complete base in {@link #getBytes()}, so neither has to be re-parsed from the other.</p>
+ *
+ * <p>Instances are not thread-safe. Borrow one with {@link #borrow()} and hand it back with {@link #release(SignatureBase)}
+ * once the signature has been computed, so the buffers are reused across requests.</p>
+ *
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc9421#name-creating-the-signature-base">RFC 9421 - Creating the Signature Base</a>
+ */
+public final class SignatureBase {
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ArrayBlockingQueue<SignatureBase> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private byte[] buffer = new byte[512];
+    private int length;
+    private final StringBuilder signatureInput = new StringBuilder(192);
+
+    public SignatureBase(){
+        reset();
+    }
+
+    /**
+     * @return A cleared instance, reused from the pool if one is available.
+     */
+    public static SignatureBase borrow(){
+        SignatureBase base = POOL.poll();
+        return base == null ? new SignatureBase() : base.reset();
+    }
+
+    public static void release(SignatureBase base){
+        POOL.offer(base);
+    }
+
+    public SignatureBase reset(){
+        this.length = 0;
+        this.signatureInput.setLength(0);
+        this.signatureInput.append('(');
+        return this;
+    }
+
+    public SignatureBase method(String method){
+        return component("@method", method, null);
+    }
+
+    public SignatureBase targetUri(String uri){
+        return component("@target-uri", uri, null);
+    }
+
+    public SignatureBase component(String name, String value){
+        return component(name, value, null);
+    }
+
+    /**
+     * Adds a component whose value is {@code prefix} followed by {@code value}, e.g. {@code "GNAP " + token}, without
+     * concatenating the two.
+     */
+    public SignatureBase component(String name, String prefix, String value){
+        if(prefix == null){
+            throw new IllegalArgumentException("Covered component " + name + " has no value");
+        }
+        startComponent(name);
+        writeString(prefix);
+        if(value != null){
+            writeString(value);
+        }
+        writeByte('\n');
+        return this;
+    }
+
+    public SignatureBase component(String name, long value){
+        startComponent(name);
+        writeLong(value);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * Closes the component list and writes the {@code @signature-params} line.
+     *
+     * @param keyId   The key ID the signature is made with.
+     * @param created The signature creation time in epoch seconds.
+     * @return The signature parameters, i.e. the signature-input header value without its {@code sig1=} label.
+     */
+    public String finish(String keyId, long created){
+        StringBuilder input = this.signatureInput;
+        input.append(")").append(";keyid=\"").append(keyId).append("\";created=").append(created);
+        writeAscii("\"@signature-params\": ");
+        writeString(input);
+        return input.toString();
+    }
+
+    /**
+     * @return The buffer holding the signature base; only the first {@link #getLength()} bytes are valid.
+     */
+    public byte[] getBytes(){
+        return this.buffer;
+    }
+
+    public int getLength(){
+        return this.length;
+    }
+
+    @Override
+    public String toString(){
+        return new String(this.buffer, 0, this.length, StandardCharsets.UTF_8);
+    }
+
+    private void startComponent(String name){
+        if(this.signatureInput.length() > 1){
+            this.signatureInput.append(' ');
+        }
+        this.signatureInput.append('"').append(name).append('"');
+        writeByte('"');
+        writeAscii(name);
+        writeAscii("\": ");
+    }
+
+    private void writeAscii(String s){
+        int n = s.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            this.buffer[this.length++] = (byte) s.charAt(i);
+        }
+    }
+
+    /** Writes {@code s} as UTF-8. */
+    private void writeString(CharSequence s){
+        int n = s.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if(c < 0x80){
+                this.buffer[this.length++] = (byte) c;
+            }else{
+                i = writeNonAscii(s, i, c);
+            }
+        }
+    }
+
+    private int writeNonAscii(CharSequence s, int i, char c){
+        ensureCapacity(4);
+        byte[] b = this.buffer;
+        if(c < 0x800){
+            b[this.length++] = (byte) (0xC0 | (c >> 6));
+            b[this.length++] = (byte) (0x80 | (c & 0x3F));
+        }else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))){
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            b[this.length++] = (byte) (0xF0 | (cp >> 18));
+            b[this.length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            b[this.length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            b[this.length++] = (byte) (0x80 | (cp & 0x3F));
+        }else if(Character.isSurrogate(c)){
+            b[this.length++] = (byte) '?'; // unpaired surrogate, as String.getBytes(UTF_8) does
+        }else{
+            b[this.length++] = (byte) (0xE0 | (c >> 12));
+            b[this.length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            b[this.length++] = (byte) (0x80 | (c & 0x3F));
+        }
+        // leave room for the rest of the string, which was only reserved at one byte per char
+        ensureCapacity(s.length() - i);
+        return i;
+    }
+
+    private void writeLong(long value){
+        if(value < 0){
+            writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        this.length += digits;
+    }
+
+    private void writeByte(char c){
+        ensureCapacity(1);
+        this.buffer[this.length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int additional){
+        if(this.length + additional > this.buffer.length){
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + additional));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package open_payments.http_utils;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Produces Ed25519 signatures and SHA-512 digests from pooled, pre-initialised JCA instances.
+ *
+ * <p>{@code Signature.getInstance} and {@code MessageDigest.getInstance} go through a provider lookup on every call,
+ * and {@code initSign} re-derives the key state. Both instances can be reused once they have produced a result, so
+ * they are kept in small pools instead. A pool rather than a {@code ThreadLocal} is used so that reuse also works
+ * for short-lived virtual threads.</p>
+ */
+public class SigningEngine {
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ArrayBlockingQueue<MessageDigest> DIGESTS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final PrivateKey key;
+    private final ArrayBlockingQueue<Signature> signatures = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * @param key The Ed25519 private key used to sign.
+     * @throws InvalidKeyException If the key is not an Ed25519 key.
+     */
+    public SigningEngine(PrivateKey key) throws InvalidKeyException {
+        this.key = key;
+        // fail fast on a bad key rather than on the first request
+        this.signatures.offer(newSignature());
+    }
+
+    public PrivateKey getKey(){
+        return this.key;
+    }
+
+    /**
+     * Signs {@code length} bytes of {@code data} starting at {@code offset}.
+     *
+     * @return The raw 64 byte Ed25519 signature.
+     */
+    public byte[] sign(byte[] data, int offset, int length) throws SignatureException {
+        Signature signature = this.signatures.poll();
+        if(signature == null){
+            try{
+                signature = newSignature();
+            }catch(InvalidKeyException e){
+                throw new SignatureException(e);
+            }
+        }
+        try{
+            signature.update(data, offset, length);
+            // sign() resets the instance to its initSign state, ready for the next message
+            return signature.sign();
+        }catch(SignatureException e){
+            // the instance is in an unknown state, drop it
+            signature = null;
+            throw e;
+        }finally{
+            if(signature != null){
+                this.signatures.offer(signature);
+            }
+        }
+    }
+
+    public byte[] sign(byte[] data) throws SignatureException {
+        return sign(data, 0, data.length);
+    }
+
+    /**
+     * @return The SHA-512 digest of {@code data}.
+     */
+    public static byte[] sha512(byte[] data){
+        return sha512(data, 0, data.length);
+    }
+
+    /**
+     * @return The SHA-512 digest of {@code length} bytes of {@code data} starting at {@code offset}.
+     */
+    public static byte[] sha512(byte[] data, int offset, int length){
+        MessageDigest digest = DIGESTS.poll();
+        if(digest == null){
+            digest = newDigest();
+        }
+        try{
+            digest.update(data, offset, length);
+            return digest.digest();
+        }finally{
+            DIGESTS.offer(digest);
+        }
+    }
+
+    private Signature newSignature() throws InvalidKeyException {
+        try{
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(this.key);
+            return signature;
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException("Ed25519 is not supported by this JDK", e);
+        }
+    }
+
+    private static MessageDigest newDigest(){
+        try{
+            return MessageDigest.getInstance("SHA-512");
+        }catch(GeneralSecurityException e){
+            throw new IllegalStateException("SHA-512 is not supported by this JDK", e);
+        }
+    }
+}
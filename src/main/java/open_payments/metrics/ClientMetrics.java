@@ -0,0 +1,63 @@
+package open_payments.metrics;
+
+import open_payments.http_requests.Operation;
+
+/**
+ * Receives measurements from the hot paths of an {@code AuthenticatedClient}: the transport, request signing and JSON
+ * encoding. Every method has an empty default, so implementations only override what they record.
+ *
+ * <p>Methods are called on the threads doing the work, often an {@code HttpClient} executor thread, and must be cheap
+ * and thread-safe. The operation is {@code null} for requests that were not tagged with one.</p>
+ *
+ * @see InMemoryMetrics
+ * @see JfrMetrics
+ */
+public interface ClientMetrics {
+    /** Records nothing. */
+    ClientMetrics NOOP = new ClientMetrics(){};
+
+    /**
+     * Called when an operation completes, after all of its retries.
+     *
+     * @param nanos   The time from sending the first attempt to receiving the final response.
+     * @param success {@code true} if the final response indicated success.
+     */
+    default void operationCompleted(Operation operation, long nanos, boolean success){}
+
+    /**
+     * Called when a single HTTP exchange completes.
+     *
+     * @param statusCode    The response status, or {@code OpenPaymentsException.NO_STATUS} if no response was received.
+     * @param nanos         The time from sending the request to receiving the full response body.
+     * @param bytesSent     The size of the request body.
+     * @param bytesReceived The size of the response body.
+     * @param reuse         Whether the exchange was sent over a connection that was already open.
+     */
+    default void exchangeCompleted(Operation operation, int statusCode, long nanos, long bytesSent, long bytesReceived, ConnectionReuse reuse){}
+
+    /**
+     * Called when a failed attempt is about to be retried.
+     *
+     * @param attempt    The attempt that failed, starting at 1.
+     * @param statusCode The status of the failed attempt, or {@code OpenPaymentsException.NO_STATUS} if it received none.
+     * @param cause      The failure of the attempt, or {@code null} if it received a response.
+     */
+    default void retried(Operation operation, int attempt, int statusCode, Throwable cause){}
+
+    /**
+     * Called when a request has been signed.
+     *
+     * @param nanos The time taken to build the signature base and sign it.
+     */
+    default void signed(Operation operation, long nanos){}
+
+    /**
+     * Called when a request body has been encoded to JSON.
+     */
+    default void serialized(Operation operation, long nanos, int bytes){}
+
+    /**
+     * Called when a response body has been decoded from JSON.
+     */
+    default void deserialized(Operation operation, long nanos, int bytes){}
+}
@@ -0,0 +1,13 @@
+package open_payments.metrics;
+
+/**
+ * Whether an exchange was sent over a connection that was already open.
+ */
+public enum ConnectionReuse {
+    /** The connection was opened, including its TLS handshake, for this exchange. */
+    NEW,
+    /** The exchange reused an open connection, or a multiplexed HTTP/2 connection. */
+    REUSED,
+    /** The transport cannot tell, e.g. for plain HTTP. */
+    UNKNOWN
+}
@@ -0,0 +1,203 @@
+package open_payments.metrics;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import open_payments.http_requests.Operation;
+
+/**
+ * The default {@link ClientMetrics}, keeping per-operation histograms and counters in memory.
+ *
+ * <p>Latencies are recorded in nanoseconds in {@link LatencyHistogram}s. Recording is lock-free and allocation-free, so
+ * one instance can be shared by every client in a process and read at any time, e.g. by a periodic reporter.</p>
+ */
+public class InMemoryMetrics implements ClientMetrics {
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /** One slot per operation, plus a last slot for requests without one. */
+    private final OperationStats[] stats = new OperationStats[OPERATIONS.length + 1];
+
+    public InMemoryMetrics(){
+        for (int i = 0; i < this.stats.length; i++) {
+            this.stats[i] = new OperationStats(i < OPERATIONS.length ? OPERATIONS[i] : null);
+        }
+    }
+
+    /**
+     * @param operation The operation, or {@code null} for requests that were not tagged with one.
+     */
+    public OperationStats get(Operation operation){
+        return this.stats[operation == null ? OPERATIONS.length : operation.ordinal()];
+    }
+
+    /**
+     * @return The statistics of every operation that has recorded anything, in declaration order.
+     */
+    public Map<Operation, OperationStats> getAll(){
+        LinkedHashMap<Operation, OperationStats> all = new LinkedHashMap<>();
+        for (OperationStats operationStats : this.stats) {
+            if(operationStats.isUsed()){
+                all.put(operationStats.operation, operationStats);
+            }
+        }
+        return Collections.unmodifiableMap(all);
+    }
+
+    public void reset(){
+        for (OperationStats operationStats : this.stats) {
+            operationStats.reset();
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, long nanos, boolean success){
+        OperationStats s = get(operation);
+        s.latency.record(nanos);
+        if(!success){
+            s.failures.increment();
+        }
+    }
+
+    @Override
+    public void exchangeCompleted(Operation operation, int statusCode, long nanos, long bytesSent, long bytesReceived, ConnectionReuse reuse){
+        OperationStats s = get(operation);
+        s.exchangeLatency.record(nanos);
+        s.bytesSent.add(bytesSent);
+        s.bytesReceived.add(bytesReceived);
+        if(reuse == ConnectionReuse.NEW){
+            s.newConnections.increment();
+        }else if(reuse == ConnectionReuse.REUSED){
+            s.reusedConnections.increment();
+        }
+    }
+
+    @Override
+    public void retried(Operation operation, int attempt, int statusCode, Throwable cause){
+        get(operation).retries.increment();
+    }
+
+    @Override
+    public void signed(Operation operation, long nanos){
+        get(operation).signing.record(nanos);
+    }
+
+    @Override
+    public void serialized(Operation operation, long nanos, int bytes){
+        get(operation).serialization.record(nanos);
+    }
+
+    @Override
+    public void deserialized(Operation operation, long nanos, int bytes){
+        get(operation).deserialization.record(nanos);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder report = new StringBuilder();
+        getAll().values().forEach(s -> report.append(s).append('\n'));
+        return report.toString();
+    }
+
+    /**
+     * The measurements of one operation. Latencies are in nanoseconds.
+     */
+    public static class OperationStats {
+        final Operation operation;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram exchangeLatency = new LatencyHistogram();
+        final LatencyHistogram signing = new LatencyHistogram();
+        final LatencyHistogram serialization = new LatencyHistogram();
+        final LatencyHistogram deserialization = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder bytesSent = new LongAdder();
+        final LongAdder bytesReceived = new LongAdder();
+        final LongAdder newConnections = new LongAdder();
+        final LongAdder reusedConnections = new LongAdder();
+
+        OperationStats(Operation operation){
+            this.operation = operation;
+        }
+
+        public Operation getOperation(){
+            return this.operation;
+        }
+
+        /** @return The latency of the operation, including retries. */
+        public LatencyHistogram getLatency(){
+            return this.latency;
+        }
+
+        /** @return The latency of individual HTTP exchanges. */
+        public LatencyHistogram getExchangeLatency(){
+            return this.exchangeLatency;
+        }
+
+        public LatencyHistogram getSigning(){
+            return this.signing;
+        }
+
+        public LatencyHistogram getSerialization(){
+            return this.serialization;
+        }
+
+        public LatencyHistogram getDeserialization(){
+            return this.deserialization;
+        }
+
+        public long getFailures(){
+            return this.failures.sum();
+        }
+
+        public long getRetries(){
+            return this.retries.sum();
+        }
+
+        public long getBytesSent(){
+            return this.bytesSent.sum();
+        }
+
+        public long getBytesReceived(){
+            return this.bytesReceived.sum();
+        }
+
+        /** @return The number of exchanges that opened a new connection. */
+        public long getNewConnections(){
+            return this.newConnections.sum();
+        }
+
+        /** @return The number of exchanges known to have reused an open connection. */
+        public long getReusedConnections(){
+            return this.reusedConnections.sum();
+        }
+
+        boolean isUsed(){
+            return this.latency.getCount() > 0 || this.exchangeLatency.getCount() > 0 || this.signing.getCount() > 0
+                || this.serialization.getCount() > 0;
+        }
+
+        void reset(){
+            this.latency.reset();
+            this.exchangeLatency.reset();
+            this.signing.reset();
+            this.serialization.reset();
+            this.deserialization.reset();
+            this.failures.reset();
+            this.retries.reset();
+            this.bytesSent.reset();
+            this.bytesReceived.reset();
+            this.newConnections.reset();
+            this.reusedConnections.reset();
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%s: latency{%s} failures=%d retries=%d exchange{%s} signing{%s} serialization{%s}"
+                    + " deserialization{%s} bytesSent=%d bytesReceived=%d connections{new=%d reused=%d}",
+                this.operation == null ? "OTHER" : this.operation, this.latency, getFailures(), getRetries(),
+                this.exchangeLatency, this.signing, this.serialization, this.deserialization, getBytesSent(),
+                getBytesReceived(), getNewConnections(), getReusedConnections());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package open_payments.metrics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import open_payments.http_requests.Operation;
+
+/**
+ * A {@link ClientMetrics} that emits JDK Flight Recorder events, so client latencies can be profiled in production
+ * with {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start} and no agent.
+ *
+ * <p>Events are only built while a recording with them enabled is running. They are committed when the measured work
+ * finishes, so durations are carried in an {@code elapsed} field rather than the event's own start and end time.</p>
+ */
+public class JfrMetrics implements ClientMetrics {
+    @Override
+    public void operationCompleted(Operation operation, long nanos, boolean success){
+        OperationEvent event = new OperationEvent();
+        if(event.shouldCommit()){
+            event.operation = name(operation);
+            event.elapsed = nanos;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void exchangeCompleted(Operation operation, int statusCode, long nanos, long bytesSent, long bytesReceived, ConnectionReuse reuse){
+        ExchangeEvent event = new ExchangeEvent();
+        if(event.shouldCommit()){
+            event.operation = name(operation);
+            event.statusCode = statusCode;
+            event.elapsed = nanos;
+            event.bytesSent = bytesSent;
+            event.bytesReceived = bytesReceived;
+            event.connection = reuse.name();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void retried(Operation operation, int attempt, int statusCode, Throwable cause){
+        RetryEvent event = new RetryEvent();
+        if(event.shouldCommit()){
+            event.operation = name(operation);
+            event.attempt = attempt;
+            event.statusCode = statusCode;
+            event.cause = cause == null ? null : cause.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void signed(Operation operation, long nanos){
+        SigningEvent event = new SigningEvent();
+        if(event.shouldCommit()){
+            event.operation = name(operation);
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void serialized(Operation operation, long nanos, int bytes){
+        json(operation, "encode", nanos, bytes);
+    }
+
+    @Override
+    public void deserialized(Operation operation, long nanos, int bytes){
+        json(operation, "decode", nanos, bytes);
+    }
+
+    private static void json(Operation operation, String direction, long nanos, int bytes){
+        JsonEvent event = new JsonEvent();
+        if(event.shouldCommit()){
+            event.operation = name(operation);
+            event.direction = direction;
+            event.elapsed = nanos;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    private static String name(Operation operation){
+        return operation == null ? null : operation.name();
+    }
+
+    @Name("open_payments.Operation")
+    @Label("Open Payments Operation")
+    @Description("An Open Payments operation, including retries")
+    @Category({"Open Payments"})
+    @StackTrace(false)
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("open_payments.Exchange")
+    @Label("Open Payments HTTP Exchange")
+    @Category({"Open Payments"})
+    @StackTrace(false)
+    static class ExchangeEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Status Code")
+        int statusCode;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+        @Label("Bytes Sent")
+        @DataAmount
+        long bytesSent;
+        @Label("Bytes Received")
+        @DataAmount
+        long bytesReceived;
+        @Label("Connection")
+        String connection;
+    }
+
+    @Name("open_payments.Retry")
+    @Label("Open Payments Retry")
+    @Category({"Open Payments"})
+    @StackTrace(false)
+    static class RetryEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Failed Attempt")
+        int attempt;
+        @Label("Status Code")
+        int statusCode;
+        @Label("Cause")
+        String cause;
+    }
+
+    @Name("open_payments.Signing")
+    @Label("Open Payments Request Signing")
+    @Category({"Open Payments"})
+    @StackTrace(false)
+    static class SigningEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("open_payments.Json")
+    @Label("Open Payments JSON Encoding")
+    @Category({"Open Payments"})
+    @StackTrace(false)
+    static class JsonEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Direction")
+        String direction;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+        @Label("Size")
+        @DataAmount
+        int bytes;
+    }
+}
@@ -0,0 +1,99 @@
+package open_payments.metrics;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative values with a relative precision of about 1.6%, in the style of
+ * HdrHistogram.
+ *
+ * <p>Values below 128 are counted exactly. Larger values are counted in buckets that split each power of two into 64
+ * sub-buckets, so every recorded value is within 1/64 of the value reported for it. Values up to 2^40 (about 18
+ * minutes in nanoseconds) are tracked; larger values are counted in the top bucket.</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final long HIGHEST_TRACKABLE = (1L << 40) - 1;
+    private static final int BUCKET_COUNT = indexOf(HIGHEST_TRACKABLE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        }
+        this.counts.incrementAndGet(indexOf(Math.min(value, HIGHEST_TRACKABLE)));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount(){
+        return this.count.get();
+    }
+
+    public long getMax(){
+        return this.max.get();
+    }
+
+    public double getMean(){
+        long n = this.count.get();
+        return n == 0 ? 0 : (double) this.sum.get() / n;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     * @return The largest value equivalent to the recorded value at the percentile, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile){
+        long total = this.count.get();
+        if(total == 0){
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts.get(i);
+            if(seen >= target){
+                return Math.min(highestEquivalentValue(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    public void reset(){
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    static int indexOf(long value){
+        if(value < LINEAR_LIMIT){
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index){
+        if(index < LINEAR_LIMIT){
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("count=%d p50=%d p90=%d p99=%d p99.9=%d max=%d", getCount(), getValueAtPercentile(50),
+            getValueAtPercentile(90), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
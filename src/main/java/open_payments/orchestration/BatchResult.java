@@ -0,0 +1,46 @@
+package open_payments.orchestration;
+
+/**
+ * The outcome of a single item of a batch: either the created resource or the error that prevented it.
+ *
+ * @param <J> The type of the batch item.
+ * @param <T> The type of resource the item creates.
+ */
+public class BatchResult<J, T> {
+    final J item;
+    final T value;
+    final Throwable error;
+
+    BatchResult(J item, T value, Throwable error){
+        this.item = item;
+        this.value = value;
+        this.error = error;
+    }
+
+    public J getItem(){
+        return this.item;
+    }
+
+    /**
+     * @return The created resource, or {@code null} if the item failed.
+     */
+    public T getValue(){
+        return this.value;
+    }
+
+    /**
+     * @return The failure, or {@code null} if the item succeeded.
+     */
+    public Throwable getError(){
+        return this.error;
+    }
+
+    public boolean isSuccess(){
+        return this.error == null;
+    }
+
+    @Override
+    public String toString(){
+        return isSuccess() ? "BatchResult{" + this.item + " -> " + this.value + "}" : "BatchResult{" + this.item + " failed: " + this.error + "}";
+    }
+}
@@ -0,0 +1,34 @@
+package open_payments.orchestration;
+import java.time.Duration;
+
+/**
+ * Totals for a completed batch.
+ */
+public class BatchSummary {
+    final long succeeded;
+    final long failed;
+    final Duration elapsed;
+
+    BatchSummary(long succeeded, long failed, Duration elapsed){
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsed = elapsed;
+    }
+
+    public long getSucceeded(){
+        return this.succeeded;
+    }
+
+    public long getFailed(){
+        return this.failed;
+    }
+
+    public Duration getElapsed(){
+        return this.elapsed;
+    }
+
+    @Override
+    public String toString(){
+        return "BatchSummary{succeeded=" + this.succeeded + ", failed=" + this.failed + ", elapsed=" + this.elapsed + "}";
+    }
+}
@@ -0,0 +1,89 @@
+package open_payments.orchestration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Starts asynchronous tasks for a sequence of items, keeping at most {@code parallelism} of them in flight.
+ *
+ * <p>Completions start the next task without recursion: whichever thread finishes a task drains the queue, and a
+ * thread that finds another already draining just leaves a note for it. Tasks that complete synchronously therefore
+ * cannot overflow the stack.</p>
+ */
+class BoundedDispatcher<J, T> {
+    interface Completion<J, T> {
+        /**
+         * @param error The task's failure, unwrapped from any {@code CompletionException}, or {@code null} on success.
+         */
+        void accept(J item, T value, Throwable error);
+    }
+
+    private final Iterator<J> items;
+    private final int parallelism;
+    private final Function<J, CompletableFuture<T>> task;
+    private final Completion<J, T> onComplete;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean exhausted;
+
+    /**
+     * @param items       The items to process; only accessed by the draining thread.
+     * @param parallelism The maximum number of tasks in flight.
+     * @param task        Starts the task for an item.
+     * @param onComplete  Called with each item and the outcome of its task. If it throws, the next task is still
+     *                    started, but the exception is lost.
+     */
+    BoundedDispatcher(Iterator<J> items, int parallelism, Function<J, CompletableFuture<T>> task, Completion<J, T> onComplete){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.items = items;
+        this.parallelism = parallelism;
+        this.task = task;
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * @return A future completed once every item's task has completed and been reported.
+     */
+    CompletableFuture<Void> start(){
+        drain();
+        return this.done;
+    }
+
+    private void drain(){
+        if(this.wip.getAndIncrement() != 0){
+            return;
+        }
+        do{
+            while(!this.exhausted && this.inFlight.get() < this.parallelism){
+                if(!this.items.hasNext()){
+                    this.exhausted = true;
+                    break;
+                }
+                J item = this.items.next();
+                this.inFlight.incrementAndGet();
+                CompletableFuture<T> running;
+                try{
+                    running = this.task.apply(item);
+                }catch(RuntimeException e){
+                    running = CompletableFuture.failedFuture(e);
+                }
+                running.whenComplete((value, error) -> {
+                    try{
+                        this.onComplete.accept(item, value, IncomingPaymentBatch.unwrap(error));
+                    }finally{
+                        this.inFlight.decrementAndGet();
+                        drain();
+                    }
+                });
+            }
+            if(this.exhausted && this.inFlight.get() == 0){
+                this.done.complete(null);
+            }
+        }while(this.wip.decrementAndGet() != 0);
+    }
+}
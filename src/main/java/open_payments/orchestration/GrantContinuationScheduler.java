@@ -0,0 +1,193 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.Grant;
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * Continues pending grants once their {@code continue.wait} has elapsed, without parking a thread per grant.
+ *
+ * <p>Each scheduled grant is held in a {@link HashedTimerWheel} until its wait is over and is then continued. A
+ * response that still has no access token, or a {@code too_fast} or 429 error, puts the grant back on the wheel for at
+ * least the server's new {@code wait}; the delay also grows by half on each attempt, from one second up to
+ * {@code maxWait}. The grant's future completes with the first response carrying an access token, or exceptionally
+ * with any other error, or with a {@link TimeoutException} once {@code timeout} has passed. Thousands of grants cost
+ * one wheel thread and a small object each.</p>
+ *
+ * <p>The {@link #schedule(Grant)} method fits {@link PaymentOrchestrator.GrantAuthorizer}, so
+ * {@code new PaymentOrchestrator(client, scheduler::schedule)} polls for the user's approval instead of blocking.</p>
+ */
+public class GrantContinuationScheduler implements AutoCloseable {
+    private static final Duration MIN_WAIT = Duration.ofSeconds(1);
+
+    private final Function<Grant, CompletableFuture<Grant>> continuer;
+    private final long timeoutNanos;
+    private final long maxWaitNanos;
+    private final Executor executor;
+    private final HashedTimerWheel wheel;
+    private final Set<PendingGrant> pending = ConcurrentHashMap.newKeySet();
+    private final LongAdder continuations = new LongAdder();
+
+    /**
+     * Continues grants with {@link AuthenticatedClient#continueGrantAsync(Grant)}, giving up after 10 minutes and
+     * waiting at most 60 seconds between attempts.
+     */
+    public GrantContinuationScheduler(AuthenticatedClient client){
+        this(client::continueGrantAsync, Duration.ofMinutes(10), Duration.ofSeconds(60), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param continuer Sends one continuation request for a grant, e.g. {@code client::continueGrantAsync}.
+     * @param timeout   How long after scheduling a grant it is given up on.
+     * @param maxWait   The longest wait between two attempts, however often the grant was still pending.
+     * @param executor  Runs {@code continuer}, so that signing and sending never hold up the timer thread.
+     */
+    public GrantContinuationScheduler(Function<Grant, CompletableFuture<Grant>> continuer, Duration timeout, Duration maxWait,
+                                      Executor executor){
+        this.continuer = continuer;
+        this.timeoutNanos = timeout.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.executor = executor;
+        // 100ms ticks, one turn of the wheel covers about 51 seconds
+        this.wheel = new HashedTimerWheel("grant-continuation", Duration.ofMillis(100), 512);
+    }
+
+    /**
+     * Continues {@code grant} once its {@code continue.wait} has elapsed, and again for as long as it is pending.
+     *
+     * @param grant A grant returned with a {@code continue} field, typically awaiting user interaction.
+     * @return A future completed with the grant carrying an access token. Cancelling it stops the polling.
+     */
+    public CompletableFuture<Grant> schedule(Grant grant){
+        if(grant.continuation == null){
+            return CompletableFuture.failedFuture(new IllegalArgumentException("grant has no continuation"));
+        }
+        PendingGrant entry = new PendingGrant(grant, System.nanoTime() + this.timeoutNanos);
+        this.pending.add(entry);
+        entry.result.whenComplete((result, error) -> {
+            this.pending.remove(entry);
+            HashedTimerWheel.Timeout timeout = entry.timeout;
+            if(timeout != null){
+                timeout.cancel();
+            }
+        });
+        try{
+            reschedule(entry, grant.continuation.wait);
+        }catch(IllegalStateException e){
+            entry.result.completeExceptionally(e);
+        }
+        return entry.result;
+    }
+
+    /**
+     * @return The number of grants waiting for their next continuation or for its response.
+     */
+    public int getPendingCount(){
+        return this.pending.size();
+    }
+
+    /**
+     * @return The number of continuation requests sent.
+     */
+    public long getContinuationCount(){
+        return this.continuations.sum();
+    }
+
+    /**
+     * Stops the timer. Grants still pending complete exceptionally with a {@link CancellationException}.
+     */
+    @Override
+    public void close(){
+        this.wheel.close();
+        for (PendingGrant entry : this.pending) {
+            entry.result.completeExceptionally(new CancellationException("scheduler closed"));
+        }
+    }
+
+    private void reschedule(PendingGrant entry, int waitSeconds){
+        long delay = TimeUnit.SECONDS.toNanos(Math.max(0, waitSeconds));
+        if(entry.attempts > 0){
+            // back off while the user has not finished, but never below what the server asked for
+            long backoff = Math.max(MIN_WAIT.toNanos(), entry.lastDelayNanos + entry.lastDelayNanos / 2);
+            delay = Math.max(delay, Math.min(this.maxWaitNanos, backoff));
+        }
+        long remaining = entry.deadlineNanos - System.nanoTime();
+        if(remaining - delay < 0){
+            entry.result.completeExceptionally(new TimeoutException("grant still pending after " + entry.attempts + " continuations"));
+            return;
+        }
+        entry.lastDelayNanos = delay;
+        entry.timeout = this.wheel.schedule(() -> this.executor.execute(() -> poll(entry)), delay, TimeUnit.NANOSECONDS);
+        if(entry.result.isDone()){
+            entry.timeout.cancel();
+        }
+    }
+
+    private void poll(PendingGrant entry){
+        if(entry.result.isDone()){
+            return;
+        }
+        entry.attempts++;
+        this.continuations.increment();
+        CompletableFuture<Grant> response;
+        try{
+            response = this.continuer.apply(entry.grant);
+        }catch(RuntimeException e){
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((grant, failure) -> {
+            Throwable error = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            try{
+                if(error == null && grant != null && grant.access_token != null){
+                    entry.result.complete(grant);
+                }else if(error == null && grant != null && grant.continuation != null){
+                    // the server may issue a new continuation token and uri with every response
+                    entry.grant = grant;
+                    reschedule(entry, grant.continuation.wait);
+                }else if(error != null && isTooFast(error)){
+                    reschedule(entry, entry.grant.continuation.wait);
+                }else{
+                    entry.result.completeExceptionally(error != null ? error
+                        : new IllegalStateException("continuation returned neither an access token nor a continuation"));
+                }
+            }catch(IllegalStateException e){
+                // the wheel was closed while the request was in flight
+                entry.result.completeExceptionally(new CancellationException("scheduler closed"));
+            }
+        });
+    }
+
+    private static boolean isTooFast(Throwable error){
+        if(!(error instanceof OpenPaymentsException)){
+            return false;
+        }
+        OpenPaymentsException e = (OpenPaymentsException) error;
+        return e.getStatusCode() == 429 || "too_fast".equals(e.getErrorCode());
+    }
+
+    private static class PendingGrant {
+        final CompletableFuture<Grant> result = new CompletableFuture<>();
+        final long deadlineNanos;
+        volatile Grant grant;
+        volatile HashedTimerWheel.Timeout timeout;
+        volatile long lastDelayNanos;
+        volatile int attempts;
+
+        PendingGrant(Grant grant, long deadlineNanos){
+            this.grant = grant;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel: timeouts are hashed by deadline into a ring of buckets that a single thread visits one per
+ * tick, so scheduling and cancelling are O(1) whatever the number of pending timeouts, at the cost of firing up to one
+ * tick late.
+ *
+ * <p>{@link #schedule} only appends to a lock-free queue; the wheel thread moves queued timeouts into their buckets on
+ * its next tick. Expired tasks run on the wheel thread and must hand any real work off to an executor.</p>
+ */
+class HashedTimerWheel implements AutoCloseable {
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * @param name  The name of the wheel thread.
+     * @param tick  The resolution of the wheel.
+     * @param slots The number of buckets, rounded up to a power of two. A full turn of the wheel should cover the
+     *              usual delays, longer ones are carried over for extra turns.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    HashedTimerWheel(String name, Duration tick, int slots){
+        if(tick.toNanos() <= 0 || slots < 1){
+            throw new IllegalArgumentException("tick and slots must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.tickNanos = tick.toNanos();
+        this.wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once {@code delay} has elapsed.
+     *
+     * @return A handle to cancel the task with.
+     * @throws IllegalStateException If the wheel has been closed.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit){
+        if(this.closed){
+            throw new IllegalStateException("timer wheel closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - this.startNanos + Math.max(0, unit.toNanos(delay)));
+        this.size.incrementAndGet();
+        this.added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return The number of scheduled tasks that have neither run nor been cancelled.
+     */
+    int size(){
+        return this.size.get();
+    }
+
+    @Override
+    public void close(){
+        this.closed = true;
+        LockSupport.unpark(this.worker);
+    }
+
+    private void run(){
+        while(!this.closed){
+            long deadline = this.startNanos + (this.tick + 1) * this.tickNanos;
+            long wait;
+            while((wait = deadline - System.nanoTime()) > 0 && !this.closed){
+                LockSupport.parkNanos(this, wait);
+            }
+            if(this.closed){
+                return;
+            }
+            transferAdded();
+            expire(this.wheel[(int) (this.tick & this.mask)]);
+            this.tick++;
+        }
+    }
+
+    private void transferAdded(){
+        Timeout timeout;
+        while((timeout = this.added.poll()) != null){
+            if(timeout.isCancelled()){
+                continue;
+            }
+            long due = timeout.deadlineNanos / this.tickNanos;
+            timeout.rounds = Math.max(0, due - this.tick) / this.wheel.length;
+            // an already overdue timeout goes into the current bucket and fires on this tick
+            this.wheel[(int) (Math.max(due, this.tick) & this.mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket){
+        for (int i = bucket.size(); i > 0; i--) {
+            Timeout timeout = bucket.poll();
+            if(timeout.isCancelled()){
+                continue;
+            }
+            if(timeout.rounds > 0){
+                timeout.rounds--;
+                bucket.add(timeout);
+                continue;
+            }
+            if(timeout.fire()){
+                this.size.decrementAndGet();
+                try{
+                    timeout.task.run();
+                }catch(RuntimeException e){
+                    // a failing task must not stop the wheel
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    final class Timeout {
+        final Runnable task;
+        final long deadlineNanos;
+        long rounds;
+        // 0 scheduled, 1 fired, 2 cancelled
+        private final AtomicInteger state = new AtomicInteger();
+
+        Timeout(Runnable task, long deadlineNanos){
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return {@code true} if the task had not run yet and now never will.
+         */
+        boolean cancel(){
+            if(!this.state.compareAndSet(0, 2)){
+                return false;
+            }
+            HashedTimerWheel.this.size.decrementAndGet();
+            return true;
+        }
+
+        boolean isCancelled(){
+            return this.state.get() == 2;
+        }
+
+        private boolean fire(){
+            return this.state.compareAndSet(0, 1);
+        }
+    }
+}
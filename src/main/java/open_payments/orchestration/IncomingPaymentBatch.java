@@ -0,0 +1,152 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.Grant;
+import open_payments.api.IncomingPayment;
+import open_payments.api.WalletAddress;
+
+/**
+ * Creates incoming payments in bulk, e.g. for a payout run.
+ *
+ * <p>Entries are grouped by their wallet address's resource server. Each group requests a single incoming payment
+ * grant and then pipelines its signed POSTs over the client's pooled connections, with up to {@code parallelism}
+ * requests in flight per resource server. Each entry's result is reported as soon as it completes.</p>
+ */
+public class IncomingPaymentBatch {
+    /**
+     * A single incoming payment to create.
+     */
+    public static class Entry {
+        final WalletAddress walletAddress;
+        final long amount;
+        final String expiresAt;
+
+        /**
+         * @param walletAddress The wallet address that receives the payment.
+         * @param amount        The amount to receive, in the wallet's asset and scale, as an unsigned 64-bit integer.
+         * @param expiresAt     When the incoming payment stops accepting payments, as an ISO 8601 timestamp, or {@code null}.
+         */
+        public Entry(WalletAddress walletAddress, long amount, String expiresAt){
+            this.walletAddress = walletAddress;
+            this.amount = amount;
+            this.expiresAt = expiresAt;
+        }
+
+        public WalletAddress getWalletAddress(){
+            return this.walletAddress;
+        }
+
+        public long getAmount(){
+            return this.amount;
+        }
+
+        public String getExpiresAt(){
+            return this.expiresAt;
+        }
+
+        @Override
+        public String toString(){
+            return "Entry{" + this.walletAddress.id + ", " + Long.toUnsignedString(this.amount) + "}";
+        }
+    }
+
+    private final AuthenticatedClient client;
+    private final int parallelism;
+
+    /**
+     * @param client      The client used to request grants and create the incoming payments.
+     * @param parallelism The maximum number of requests in flight to each resource server.
+     */
+    public IncomingPaymentBatch(AuthenticatedClient client, int parallelism){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates an incoming payment for every entry.
+     *
+     * @param entries  The incoming payments to create.
+     * @param listener Receives each entry's result as it completes. Calls are never concurrent, but may be made from
+     *                 different threads.
+     * @return A future completed with the batch totals once every result has been reported, or completed
+     *         exceptionally with the first exception the listener threw, once every result has been reported.
+     */
+    public CompletableFuture<BatchSummary> create(List<Entry> entries, Consumer<BatchResult<Entry, IncomingPayment>> listener){
+        long start = System.nanoTime();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Object listenerLock = new Object();
+        AtomicReference<RuntimeException> listenerError = new AtomicReference<>();
+        Consumer<BatchResult<Entry, IncomingPayment>> report = result -> {
+            (result.isSuccess() ? succeeded : failed).incrementAndGet();
+            synchronized(listenerLock){
+                try{
+                    listener.accept(result);
+                }catch(RuntimeException e){
+                    // the remaining entries are still created and reported
+                    if(!listenerError.compareAndSet(null, e)){
+                        listenerError.get().addSuppressed(e);
+                    }
+                }
+            }
+        };
+
+        Map<String, List<Entry>> byResourceServer = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            byResourceServer.computeIfAbsent(entry.walletAddress.resourceServer, server -> new ArrayList<>()).add(entry);
+        }
+
+        List<CompletableFuture<Void>> groups = new ArrayList<>();
+        for (List<Entry> group : byResourceServer.values()) {
+            groups.add(createGroup(group, report));
+        }
+        return CompletableFuture.allOf(groups.toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> {
+                if(listenerError.get() != null){
+                    throw listenerError.get();
+                }
+                return new BatchSummary(succeeded.get(), failed.get(), Duration.ofNanos(System.nanoTime() - start));
+            });
+    }
+
+    private CompletableFuture<Void> createGroup(List<Entry> group, Consumer<BatchResult<Entry, IncomingPayment>> report){
+        CompletableFuture<Grant> grant = this.client.requestIncomingPaymentGrantAsync(group.get(0).walletAddress);
+        return grant.handle((g, error) -> {
+            if(error == null && (g == null || g.access_token == null)){
+                // e.g. the auth server asked for interaction, which a batch cannot complete
+                error = new IllegalStateException("incoming payment grant for " + group.get(0).walletAddress.resourceServer
+                    + " carries no access token");
+            }
+            if(error != null){
+                Throwable cause = unwrap(error);
+                group.forEach(entry -> report.accept(new BatchResult<>(entry, null, cause)));
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            String accessToken = g.access_token.value;
+            return new BoundedDispatcher<Entry, IncomingPayment>(group.iterator(), this.parallelism,
+                entry -> this.client.createIncomingPaymentAsync(entry.walletAddress, accessToken, entry.amount, entry.expiresAt),
+                (entry, payment, failure) -> report.accept(new BatchResult<>(entry, payment, failure)))
+                .start();
+        }).thenCompose(groupDone -> groupDone);
+    }
+
+    static Throwable unwrap(Throwable error){
+        if(error == null){
+            return null;
+        }
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,41 @@
+package open_payments.orchestration;
+
+import open_payments.api.Grant;
+import open_payments.api.WalletAddress;
+
+/**
+ * A payment for {@link QuoteAndPayEngine}: quote and pay an existing incoming payment from a sending wallet.
+ */
+public class PaymentJob {
+    final WalletAddress sender;
+    final String receiver;
+    final Grant outgoingPaymentGrant;
+
+    /**
+     * @param sender               The wallet address the payment is sent from.
+     * @param receiver             The URL of the incoming payment being paid.
+     * @param outgoingPaymentGrant An authorised outgoing payment grant for {@code sender}.
+     */
+    public PaymentJob(WalletAddress sender, String receiver, Grant outgoingPaymentGrant){
+        this.sender = sender;
+        this.receiver = receiver;
+        this.outgoingPaymentGrant = outgoingPaymentGrant;
+    }
+
+    public WalletAddress getSender(){
+        return this.sender;
+    }
+
+    public String getReceiver(){
+        return this.receiver;
+    }
+
+    public Grant getOutgoingPaymentGrant(){
+        return this.outgoingPaymentGrant;
+    }
+
+    @Override
+    public String toString(){
+        return "PaymentJob{" + this.sender.id + " -> " + this.receiver + "}";
+    }
+}
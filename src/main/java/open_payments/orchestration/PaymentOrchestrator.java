@@ -0,0 +1,250 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import open_payments.api.Amount;
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.Grant;
+import open_payments.api.IncomingPayment;
+import open_payments.api.Limit;
+import open_payments.api.OutgoingPayment;
+import open_payments.api.Quote;
+import open_payments.api.WalletAddress;
+import open_payments.cache.GrantBudget;
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * Runs the complete Open Payments flow from sender to receiver, starting every step as soon as the steps it depends
+ * on have completed rather than one after the other.
+ *
+ * <p>The flow forms the following dependency graph:</p>
+ * <pre>
+ * RESOLVE_RECEIVER ── INCOMING_PAYMENT_GRANT ── INCOMING_PAYMENT ──┐
+ * RESOLVE_SENDER ──┬─ QUOTE_GRANT ─────────────────────────────── QUOTE ──┐
+ *                  └─ OUTGOING_PAYMENT_GRANT (interaction) ────────────── OUTGOING_PAYMENT
+ * </pre>
+ * <p>Both wallet addresses are resolved at the same time, the three grants are requested in parallel, and the
+ * interactive outgoing payment grant is started first thing so the user's interaction overlaps with creating the
+ * incoming payment and quote.</p>
+ *
+ * <p>{@link #payDirect(String, String, long)} fixes the amount debited from the sender instead, and skips the quote:</p>
+ * <pre>
+ * RESOLVE_RECEIVER ── INCOMING_PAYMENT_GRANT ── INCOMING_PAYMENT ──┐
+ * RESOLVE_SENDER ──── OUTGOING_PAYMENT_GRANT (interaction) ─────── OUTGOING_PAYMENT
+ * </pre>
+ *
+ * <p>Given a {@link Limit}, the orchestrator reserves each payment's amounts against a grant with that limit through
+ * {@link AuthenticatedClient#reserveOutgoingPaymentBudgetAsync}, so payments share one grant, and one interaction,
+ * until its budget runs out. {@code pay} then reserves once the quote has fixed the amounts, which takes no time while
+ * the grant lasts. A payment that fails gives its reservation back, and one the server rejects as unauthorised drops
+ * the grant, so the next payment gets a new one.</p>
+ */
+public class PaymentOrchestrator {
+    /**
+     * Obtains an outgoing payment grant that can be used to pay, typically by sending the user to
+     * {@code grant.interact.redirect} and then calling {@link AuthenticatedClient#continueGrantAsync(Grant)}.
+     */
+    public interface GrantAuthorizer {
+        /**
+         * @param pendingGrant The grant returned by the auth server, awaiting interaction.
+         * @return A future completed with the authorised grant carrying an access token.
+         */
+        CompletableFuture<Grant> authorize(Grant pendingGrant);
+    }
+
+    private final AuthenticatedClient client;
+    private final GrantAuthorizer authorizer;
+    private final Limit limit;
+
+    /**
+     * @param client     The client the flow's requests are made with; its wallet address is the grant client.
+     * @param authorizer Completes the interaction for outgoing payment grants that are not issued immediately.
+     */
+    public PaymentOrchestrator(AuthenticatedClient client, GrantAuthorizer authorizer){
+        this(client, authorizer, null);
+    }
+
+    /**
+     * @param client     The client the flow's requests are made with; its wallet address is the grant client. Set a
+     *                   {@link open_payments.cache.BudgetLedger} on it to share grants between payments.
+     * @param authorizer Completes the interaction for outgoing payment grants that are not issued immediately.
+     * @param limit      The limits outgoing payment grants are requested with, or {@code null} to request a grant
+     *                   without limits for every payment.
+     */
+    public PaymentOrchestrator(AuthenticatedClient client, GrantAuthorizer authorizer, Limit limit){
+        this.client = client;
+        this.authorizer = authorizer;
+        this.limit = limit;
+    }
+
+    /**
+     * Pays {@code amount} into {@code receiverUrl} from {@code senderUrl}.
+     *
+     * @param senderUrl   The wallet address URL the payment is sent from.
+     * @param receiverUrl The wallet address URL the payment is sent to.
+     * @param amount      The amount the receiver should get, in the receiving wallet's asset and scale, as an unsigned
+     *                    64-bit integer.
+     * @return A future completed with the created resources and stage timings, or completed exceptionally with the
+     *         first failure in the flow.
+     */
+    public CompletableFuture<PaymentResult> pay(String senderUrl, String receiverUrl, long amount){
+        StageTimer flow = new StageTimer();
+
+        CompletableFuture<WalletAddress> sender = flow.stage(PaymentStage.RESOLVE_SENDER,
+            () -> client.getWalletAddressAsync(senderUrl));
+        CompletableFuture<WalletAddress> receiver = flow.stage(PaymentStage.RESOLVE_RECEIVER,
+            () -> client.getWalletAddressAsync(receiverUrl));
+
+        // without limits the amounts need not be known, so the grant is requested first thing
+        CompletableFuture<GrantBudget.Reservation> unlimited = this.limit != null ? null : sender.thenCompose(wallet ->
+            flow.stage(PaymentStage.OUTGOING_PAYMENT_GRANT, () -> reserve(wallet, 0, 0)));
+        CompletableFuture<Grant> incomingPaymentGrant = receiver.thenCompose(wallet -> flow.stage(PaymentStage.INCOMING_PAYMENT_GRANT,
+            () -> client.requestIncomingPaymentGrantAsync(wallet)));
+        CompletableFuture<Grant> quoteGrant = sender.thenCompose(wallet -> flow.stage(PaymentStage.QUOTE_GRANT,
+            () -> client.requestQuoteGrantAsync(wallet)));
+
+        CompletableFuture<IncomingPayment> incomingPayment = receiver.thenCombine(incomingPaymentGrant, (wallet, grant) ->
+            flow.stage(PaymentStage.INCOMING_PAYMENT, () -> client.createIncomingPaymentAsync(wallet, grant.access_token.value, amount)))
+            .thenCompose(stage -> stage);
+
+        CompletableFuture<Quote> quote = sender.thenCombine(quoteGrant, (wallet, grant) -> incomingPayment.thenCompose(payment ->
+            flow.stage(PaymentStage.QUOTE, () -> client.createQuoteAsync(wallet, payment.id, grant))))
+            .thenCompose(stage -> stage);
+
+        CompletableFuture<GrantBudget.Reservation> reservation = unlimited != null ? unlimited : sender.thenCombine(quote, (wallet, q) ->
+            flow.stage(PaymentStage.OUTGOING_PAYMENT_GRANT, () -> reserve(wallet, value(q.getDebitAmount()), value(q.getReceiveAmount()))))
+            .thenCompose(stage -> stage);
+
+        return quote.thenCombine(reservation, (q, r) -> sender.thenCompose(wallet ->
+            flow.stage(PaymentStage.OUTGOING_PAYMENT, () -> spend(r, grant -> client.createOutgoingPaymentAsync(wallet, q, grant)))))
+            .thenCompose(stage -> stage)
+            .thenApply(payment -> flow.result(incomingPayment.join(), quote.join(), payment));
+    }
+
+    /**
+     * Pays {@code debitAmount} from {@code senderUrl} into {@code receiverUrl} without a quote.
+     *
+     * <p>The receiver gets an incoming payment without an amount, and the outgoing payment debits exactly
+     * {@code debitAmount}; whatever arrives after conversion and fees is received. This saves the quote grant and the
+     * quote, two round trips, and suits fixed-amount payouts in the sender's asset. Use
+     * {@link #pay(String, String, long)} when the receiver must get an exact amount.</p>
+     *
+     * @param senderUrl   The wallet address URL the payment is sent from.
+     * @param receiverUrl The wallet address URL the payment is sent to.
+     * @param debitAmount The amount to debit from the sender, in the sending wallet's asset and scale, as an unsigned
+     *                    64-bit integer.
+     * @return A future completed with the created resources and stage timings, without a quote, or completed
+     *         exceptionally with the first failure in the flow.
+     */
+    public CompletableFuture<PaymentResult> payDirect(String senderUrl, String receiverUrl, long debitAmount){
+        StageTimer flow = new StageTimer();
+
+        CompletableFuture<WalletAddress> sender = flow.stage(PaymentStage.RESOLVE_SENDER,
+            () -> client.getWalletAddressAsync(senderUrl));
+        CompletableFuture<WalletAddress> receiver = flow.stage(PaymentStage.RESOLVE_RECEIVER,
+            () -> client.getWalletAddressAsync(receiverUrl));
+
+        CompletableFuture<GrantBudget.Reservation> reservation = sender.thenCompose(wallet -> flow.stage(PaymentStage.OUTGOING_PAYMENT_GRANT,
+            () -> reserve(wallet, debitAmount, 0)));
+        CompletableFuture<Grant> incomingPaymentGrant = receiver.thenCompose(wallet -> flow.stage(PaymentStage.INCOMING_PAYMENT_GRANT,
+            () -> client.requestIncomingPaymentGrantAsync(wallet)));
+
+        CompletableFuture<IncomingPayment> incomingPayment = receiver.thenCombine(incomingPaymentGrant, (wallet, grant) ->
+            flow.stage(PaymentStage.INCOMING_PAYMENT, () -> client.createIncomingPaymentAsync(wallet, grant.access_token.value)))
+            .thenCompose(stage -> stage);
+        // without an incoming payment the reservation never reaches spend, which would otherwise give it back
+        incomingPayment.whenComplete((payment, failure) -> {
+            if(failure != null){
+                reservation.thenAccept(GrantBudget.Reservation::release);
+            }
+        });
+
+        return incomingPayment.thenCombine(reservation, (payment, r) -> sender.thenCompose(wallet ->
+            flow.stage(PaymentStage.OUTGOING_PAYMENT, () -> spend(r, grant -> client.createOutgoingPaymentAsync(wallet, payment,
+                new Amount(debitAmount, wallet.assetCode, Integer.parseInt(wallet.assetScale)), grant)))))
+            .thenCompose(stage -> stage)
+            .thenApply(payment -> flow.result(incomingPayment.join(), null, payment));
+    }
+
+    /**
+     * Reserves the amounts against a grant with this orchestrator's limits, or requests a grant without limits.
+     */
+    private CompletableFuture<GrantBudget.Reservation> reserve(WalletAddress wallet, long debitAmount, long receiveAmount){
+        if(this.limit == null){
+            return client.requestOutgoingPaymentGrantAsync(wallet).thenCompose(this::authorize)
+                .thenApply(grant -> new GrantBudget(grant, null).tryReserve(debitAmount, receiveAmount));
+        }
+        return client.reserveOutgoingPaymentBudgetAsync(wallet, this.limit, debitAmount, receiveAmount, this::authorize);
+    }
+
+    /**
+     * Creates the payment under the reserved grant, giving the reservation back if that fails.
+     */
+    private static CompletableFuture<OutgoingPayment> spend(GrantBudget.Reservation reservation,
+                                                            Function<Grant, CompletableFuture<OutgoingPayment>> create){
+        CompletableFuture<OutgoingPayment> payment;
+        try{
+            payment = create.apply(reservation.getGrant());
+        }catch(RuntimeException e){
+            payment = CompletableFuture.failedFuture(e);
+        }
+        return payment.whenComplete((created, failure) -> {
+            if(failure == null){
+                return;
+            }
+            reservation.release();
+            Throwable error = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if(error instanceof OpenPaymentsException){
+                int status = ((OpenPaymentsException) error).getStatusCode();
+                if(status == 401 || status == 403){
+                    // the server no longer accepts the grant, e.g. its limits were reached through other clients
+                    reservation.getBudget().invalidate();
+                }
+            }
+        });
+    }
+
+    private static long value(Amount amount){
+        return amount == null ? 0 : amount.getValue();
+    }
+
+    private CompletableFuture<Grant> authorize(Grant grant){
+        if(grant.access_token != null){
+            // issued without interaction
+            return CompletableFuture.completedFuture(grant);
+        }
+        return this.authorizer.authorize(grant);
+    }
+
+    /**
+     * Collects the stage timings of a single run.
+     */
+    static class StageTimer {
+        final long startNanos = System.nanoTime();
+        final Map<PaymentStage, Duration> timings = new EnumMap<>(PaymentStage.class);
+
+        <T> CompletableFuture<T> stage(PaymentStage stage, Supplier<CompletableFuture<T>> step){
+            long start = System.nanoTime();
+            CompletableFuture<T> result;
+            try{
+                result = step.get();
+            }catch(RuntimeException e){
+                result = CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((value, error) -> record(stage, System.nanoTime() - start));
+        }
+
+        synchronized void record(PaymentStage stage, long nanos){
+            this.timings.put(stage, Duration.ofNanos(nanos));
+        }
+
+        synchronized PaymentResult result(IncomingPayment incomingPayment, Quote quote, OutgoingPayment outgoingPayment){
+            return new PaymentResult(incomingPayment, quote, outgoingPayment, this.timings, Duration.ofNanos(System.nanoTime() - this.startNanos));
+        }
+    }
+}
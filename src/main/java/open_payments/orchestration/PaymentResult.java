@@ -0,0 +1,65 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import open_payments.api.IncomingPayment;
+import open_payments.api.OutgoingPayment;
+import open_payments.api.Quote;
+
+/**
+ * The resources created by a payment flow and how long each of its stages took.
+ */
+public class PaymentResult {
+    final IncomingPayment incomingPayment;
+    final Quote quote;
+    final OutgoingPayment outgoingPayment;
+    final Map<PaymentStage, Duration> timings;
+    final Duration total;
+
+    PaymentResult(IncomingPayment incomingPayment, Quote quote, OutgoingPayment outgoingPayment,
+                  Map<PaymentStage, Duration> timings, Duration total){
+        this.incomingPayment = incomingPayment;
+        this.quote = quote;
+        this.outgoingPayment = outgoingPayment;
+        this.timings = Collections.unmodifiableMap(new EnumMap<>(timings));
+        this.total = total;
+    }
+
+    public IncomingPayment getIncomingPayment(){
+        return this.incomingPayment;
+    }
+
+    /**
+     * @return The quote the payment was made against, or {@code null} if the flow did not create one.
+     */
+    public Quote getQuote(){
+        return this.quote;
+    }
+
+    public OutgoingPayment getOutgoingPayment(){
+        return this.outgoingPayment;
+    }
+
+    /**
+     * @return How long each stage took, from the moment its inputs were available until it completed. Stages run
+     *         concurrently, so the durations add up to more than {@link #getTotal()}.
+     */
+    public Map<PaymentStage, Duration> getTimings(){
+        return this.timings;
+    }
+
+    /**
+     * @return The time from starting the flow until the outgoing payment was created.
+     */
+    public Duration getTotal(){
+        return this.total;
+    }
+
+    @Override
+    public String toString(){
+        return "PaymentResult{outgoingPayment=" + (this.outgoingPayment == null ? null : this.outgoingPayment.id)
+            + ", total=" + this.total + ", timings=" + this.timings + "}";
+    }
+}
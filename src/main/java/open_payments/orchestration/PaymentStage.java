@@ -0,0 +1,15 @@
+package open_payments.orchestration;
+
+/**
+ * The steps of a payment flow, as timed by {@link PaymentOrchestrator}.
+ */
+public enum PaymentStage {
+    RESOLVE_SENDER,
+    RESOLVE_RECEIVER,
+    INCOMING_PAYMENT_GRANT,
+    QUOTE_GRANT,
+    OUTGOING_PAYMENT_GRANT,
+    INCOMING_PAYMENT,
+    QUOTE,
+    OUTGOING_PAYMENT
+}
@@ -0,0 +1,239 @@
+package open_payments.orchestration;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import open_payments.api.AuthenticatedClient;
+import open_payments.api.OutgoingPayment;
+import open_payments.api.Quote;
+import open_payments.http_requests.OpenPaymentsException;
+
+/**
+ * Quotes and pays a stream of {@link PaymentJob}s with a bounded number of payments in flight.
+ *
+ * <p>The engine is a {@link Flow.Subscriber}: it requests {@code window} jobs up front and one more each time a
+ * payment finishes, so a producer publishing through, e.g., a {@link java.util.concurrent.SubmissionPublisher} is
+ * held back while the window is full instead of queueing unbounded work.</p>
+ *
+ * <p>A quote that expires within {@code requoteMargin} is replaced before paying, and a payment the server rejects
+ * because its quote is invalid or has expired is re-quoted and retried, up to {@code maxRequotes} times per job. Any
+ * other failure, such as a timeout, a server error or a rejected grant, is reported as it is. Quote grants come from
+ * {@link AuthenticatedClient#requestQuoteGrantAsync}, so set a {@link open_payments.cache.TokenStore} on the client to
+ * share them between jobs.</p>
+ */
+public class QuoteAndPayEngine implements Flow.Subscriber<PaymentJob> {
+    private final AuthenticatedClient client;
+    private final int window;
+    private final Duration requoteMargin;
+    private final int maxRequotes;
+    private final Consumer<BatchResult<PaymentJob, OutgoingPayment>> listener;
+
+    private final CompletableFuture<BatchSummary> completion = new CompletableFuture<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requotes = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private RuntimeException listenerError;
+
+    /**
+     * Creates an engine that re-quotes quotes expiring within 5 seconds, at most twice per job.
+     *
+     * @param client   The client the quotes and payments are created with.
+     * @param window   The maximum number of jobs in flight.
+     * @param listener Receives each job's result as it completes. Calls are never concurrent.
+     */
+    public QuoteAndPayEngine(AuthenticatedClient client, int window, Consumer<BatchResult<PaymentJob, OutgoingPayment>> listener){
+        this(client, window, Duration.ofSeconds(5), 2, listener);
+    }
+
+    /**
+     * @param client        The client the quotes and payments are created with.
+     * @param window        The maximum number of jobs in flight.
+     * @param requoteMargin Quotes expiring sooner than this are replaced before paying.
+     * @param maxRequotes   The maximum number of times a job is re-quoted.
+     * @param listener      Receives each job's result as it completes. Calls are never concurrent.
+     */
+    public QuoteAndPayEngine(AuthenticatedClient client, int window, Duration requoteMargin, int maxRequotes,
+                             Consumer<BatchResult<PaymentJob, OutgoingPayment>> listener){
+        if(window < 1){
+            throw new IllegalArgumentException("window must be at least 1");
+        }
+        this.client = client;
+        this.window = window;
+        this.requoteMargin = requoteMargin;
+        this.maxRequotes = maxRequotes;
+        this.listener = listener;
+    }
+
+    /**
+     * @return A future completed with the totals once the publisher has completed and every job has been reported.
+     *         Completes exceptionally if the publisher signalled an error, after the jobs in flight have finished, or
+     *         with the first exception the listener threw, once the remaining jobs have been reported.
+     */
+    public CompletableFuture<BatchSummary> getCompletion(){
+        return this.completion;
+    }
+
+    public int getInFlight(){
+        return this.inFlight.get();
+    }
+
+    /**
+     * @return The number of quotes replaced because they were about to expire, or had expired.
+     */
+    public long getRequoteCount(){
+        return this.requotes.get();
+    }
+
+    /**
+     * Stops requesting jobs. Jobs already in flight still complete and are reported.
+     */
+    public synchronized void cancel(){
+        if(this.subscription != null){
+            this.subscription.cancel();
+        }
+        this.upstreamDone = true;
+        tryComplete();
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription){
+        if(this.subscription != null){
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(this.window);
+    }
+
+    @Override
+    public void onNext(PaymentJob job){
+        this.inFlight.incrementAndGet();
+        CompletableFuture<OutgoingPayment> payment;
+        try{
+            payment = quote(job, 0).thenCompose(quote -> pay(job, quote, 0));
+        }catch(RuntimeException e){
+            payment = CompletableFuture.failedFuture(e);
+        }
+        payment.whenComplete((outgoingPayment, error) -> {
+            Throwable failure = IncomingPaymentBatch.unwrap(error);
+            (failure == null ? this.succeeded : this.failed).incrementAndGet();
+            synchronized(this){
+                try{
+                    this.listener.accept(new BatchResult<>(job, outgoingPayment, failure));
+                }catch(RuntimeException e){
+                    // a faulty listener must not stall the stream, report it once every job is done
+                    if(this.listenerError == null){
+                        this.listenerError = e;
+                    }else{
+                        this.listenerError.addSuppressed(e);
+                    }
+                }finally{
+                    this.inFlight.decrementAndGet();
+                    if(!this.upstreamDone){
+                        this.subscription.request(1);
+                    }
+                    tryComplete();
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable){
+        this.upstreamError = throwable;
+        this.upstreamDone = true;
+        tryComplete();
+    }
+
+    @Override
+    public synchronized void onComplete(){
+        this.upstreamDone = true;
+        tryComplete();
+    }
+
+    private void tryComplete(){
+        if(this.upstreamDone && this.inFlight.get() == 0){
+            if(this.upstreamError != null){
+                this.completion.completeExceptionally(this.upstreamError);
+            }else if(this.listenerError != null){
+                this.completion.completeExceptionally(this.listenerError);
+            }else{
+                this.completion.complete(new BatchSummary(this.succeeded.get(), this.failed.get(), Duration.ofNanos(System.nanoTime() - this.startNanos)));
+            }
+        }
+    }
+
+    /**
+     * Creates a quote for the job, replacing it while it is too close to expiry.
+     */
+    private CompletableFuture<Quote> quote(PaymentJob job, int requoted){
+        return this.client.requestQuoteGrantAsync(job.sender)
+            .thenCompose(grant -> this.client.createQuoteAsync(job.sender, job.receiver, grant))
+            .thenCompose(quote -> {
+                if(expiresWithin(quote, this.requoteMargin) && requoted < this.maxRequotes){
+                    this.requotes.incrementAndGet();
+                    return quote(job, requoted + 1);
+                }
+                return CompletableFuture.completedFuture(quote);
+            });
+    }
+
+    private CompletableFuture<OutgoingPayment> pay(PaymentJob job, Quote quote, int requoted){
+        return this.client.createOutgoingPaymentAsync(job.sender, quote, job.outgoingPaymentGrant)
+            .handle((payment, error) -> {
+                if(error == null){
+                    return CompletableFuture.completedFuture(payment);
+                }
+                if(rejectsQuote(IncomingPaymentBatch.unwrap(error), quote) && requoted < this.maxRequotes){
+                    // the quote ran out while we were paying, or the server no longer accepts it, quote again
+                    this.requotes.incrementAndGet();
+                    return quote(job, requoted + 1).thenCompose(fresh -> pay(job, fresh, requoted + 1));
+                }
+                return CompletableFuture.<OutgoingPayment>failedFuture(IncomingPaymentBatch.unwrap(error));
+            })
+            .thenCompose(result -> result);
+    }
+
+    /**
+     * @return Whether the server rejected the payment because of its quote: a client error that names the quote, or
+     *         one received after the quote expired. Unauthorised payments and throttling are not the quote's fault.
+     */
+    static boolean rejectsQuote(Throwable error, Quote quote){
+        if(!(error instanceof OpenPaymentsException)){
+            return false;
+        }
+        OpenPaymentsException exception = (OpenPaymentsException) error;
+        int status = exception.getStatusCode();
+        if(status < 400 || status >= 500 || status == 401 || status == 403 || status == 408 || status == 429){
+            return false;
+        }
+        return mentionsQuote(exception.getErrorCode()) || mentionsQuote(exception.getErrorDescription())
+            || expiresWithin(quote, Duration.ZERO);
+    }
+
+    private static boolean mentionsQuote(String text){
+        return text != null && text.toLowerCase(Locale.ROOT).contains("quote");
+    }
+
+    static boolean expiresWithin(Quote quote, Duration margin){
+        if(quote.getExpiresAt() == null){
+            return false;
+        }
+        try{
+            return Instant.parse(quote.getExpiresAt()).minus(margin).isBefore(Instant.now());
+        }catch(DateTimeParseException e){
+            return false;
+        }
+    }
+}